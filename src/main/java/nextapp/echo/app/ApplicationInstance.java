@@ -36,11 +36,13 @@ import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import nextapp.echo.app.update.ServerUpdateManager;
 import nextapp.echo.app.update.UpdateManager;
@@ -62,6 +64,14 @@ public abstract class ApplicationInstance implements Serializable {
     public static final String MODAL_COMPONENTS_CHANGED_PROPERTY = "modalComponents";
     public static final String STYLE_SHEET_CHANGED_PROPERTY = "styleSheet";
     public static final String WINDOWS_CHANGED_PROPERTY = "windows";
+    
+    /**
+     * Property fired when a task is enqueued while no tasks are awaiting
+     * processing, signaling that a synchronization should be scheduled.
+     * Subsequent enqueues do not fire the property until queued tasks have
+     * been processed.  The new value is the time of the enqueue, in 
+     * milliseconds.  May be fired by any thread.
+     */
     public static final String LAST_ENQUEUE_TASK_PROPERTY = "lastEnqueueTask";
     
     /** 
@@ -70,6 +80,79 @@ public abstract class ApplicationInstance implements Serializable {
      */ 
     private static final ThreadLocal activeInstance = new ThreadLocal();
     
+    /**
+     * Marker stored in the resolved style cache to indicate that the <code>StyleSheet</code> provides no style for a
+     * specific component class / style name combination.
+     */
+    private static final Object NO_STYLE = new Object();
+    
+    /**
+     * A task scheduled on the shared <code>TimerWheel</code>, which enqueues 
+     * its task into a task queue on each expiration.  The timeout cancels 
+     * itself once its task queue has been removed.
+     */
+    private static final class ScheduledTask extends TimerWheel.Timeout {
+        
+        private final ApplicationInstance applicationInstance;
+        private final TaskQueue taskQueue;
+        private final Runnable task;
+        
+        /** 
+         * Flag indicating that an execution of a repeating task has been 
+         * enqueued but not yet run. 
+         */
+        private final AtomicBoolean enqueued = new AtomicBoolean();
+
+        /**
+         * Creates a new <code>ScheduledTask</code>.
+         * 
+         * @param applicationInstance the application instance
+         * @param taskQueue the queue into which the task is enqueued
+         * @param task the task
+         * @param period the repeat period, in milliseconds, or 0 for a 
+         *        non-repeating task
+         */
+        private ScheduledTask(ApplicationInstance applicationInstance, TaskQueue taskQueue, Runnable task, long period) {
+            super(period);
+            this.applicationInstance = applicationInstance;
+            this.taskQueue = taskQueue;
+            this.task = task;
+        }
+        
+        /**
+         * @see nextapp.echo.app.TimerWheel.Timeout#cancel()
+         */
+        public boolean cancel() {
+            if (!super.cancel()) {
+                return false;
+            }
+            taskQueue.removeScheduledTask(this);
+            return true;
+        }
+        
+        /**
+         * @see nextapp.echo.app.TimerWheel.Timeout#expire()
+         */
+        void expire() {
+            if (taskQueue.isRemoved()) {
+                cancel();
+                return;
+            }
+            if (!isRepeating()) {
+                taskQueue.removeScheduledTask(this);
+                applicationInstance.enqueueTask(taskQueue, task);
+            } else if (enqueued.compareAndSet(false, true)) {
+                // Executions of a repeating task are not enqueued while a previous execution remains pending.
+                applicationInstance.enqueueTask(taskQueue, new Runnable() {
+                    public void run() {
+                        enqueued.set(false);
+                        task.run();
+                    }
+                });
+            }
+        }
+    }
+    
     /**
      * Determines the current modal component by searching the entire hierarchy for modal components.
      * This operation is only performed when multiple visibly rendered components are registered as modal.
@@ -156,17 +239,47 @@ public abstract class ApplicationInstance implements Serializable {
     private Map context;
     
     /**
-     * Mapping from the render ids of all registered components to the 
+     * Mapping from the custom render ids of registered components to the 
      * <code>Component</code> instances themselves.
      */
     private Map renderIdToComponentMap;
     
     /**
-     * Mapping between <code>TaskQueueHandle</code>s and <code>List</code>s
-     * of <code>Runnable</code> tasks.  Values may be null if a particular 
-     * <code>TaskQueue</code> does not contain any tasks. 
+     * Mapping from the generated render id values of registered components
+     * to the <code>Component</code> instances themselves.
+     */
+    private RenderIdMap generatedRenderIdMap;
+    
+    /**
+     * Mapping from the user-defined ids of registered components to the
+     * <code>Component</code> instances themselves.  Where multiple registered
+     * components share an id, the value is a <code>List</code> of those 
+     * components.
+     */
+    private Map<String, Object> idToComponentMap;
+    
+    /**
+     * The active task queues.
      */
-    private HashMap taskQueueMap;
+    private List<TaskQueue> taskQueues;
+    
+    /**
+     * Flag indicating that the <code>LAST_ENQUEUE_TASK_PROPERTY</code> 
+     * wake-up signal has been fired since queued tasks were last processed.
+     */
+    private AtomicBoolean taskWakeUpPending;
+    
+    /**
+     * The maximum number of queued tasks run per synchronization, or 0 for
+     * no limit.
+     */
+    private int taskCountBudget;
+    
+    /**
+     * The maximum time, in milliseconds, spent running queued tasks per 
+     * synchronization, or 0 for no limit.
+     */
+    private long taskTimeBudget;
     
     /**
      * Fires property change events for the instance object.
@@ -189,6 +302,20 @@ public abstract class ApplicationInstance implements Serializable {
      * The <code>StyleSheet</code> used by the application.
      */
     private StyleSheet styleSheet;
+    
+    /**
+     * Cache of styles resolved from the <code>StyleSheet</code>, mapping component <code>Class</code>es to 
+     * <code>Map</code>s of style names (null representing the default style) to <code>Style</code>s 
+     * (or <code>NO_STYLE</code>).  Lazily created, cleared whenever the <code>StyleSheet</code> is set or a 
+     * <code>MutableStyleSheet</code> is modified.
+     */
+    private transient Map<Class, Map<String, Object>> resolvedStyleCache;
+    
+    /**
+     * The modification count of the <code>MutableStyleSheet</code> from which <code>resolvedStyleCache</code> was
+     * resolved.
+     */
+    private transient int resolvedStyleSheetModificationCount;
 
     /**
      * Collection of modal components, the last index representing the current
@@ -197,11 +324,45 @@ public abstract class ApplicationInstance implements Serializable {
     private List modalComponents;
     
     /**
-     * The next available sequentially generated 
-     * <code>ApplicationInstance</code>-unique identifier value.
+     * Cached root of the current modal context, as returned by 
+     * <code>getModalContextRoot()</code>.  Valid only while 
+     * <code>modalContextRootValid</code> is set.
+     */
+    private transient Component modalContextRoot;
+    
+    /**
+     * Flag indicating whether <code>modalContextRoot</code> is valid.  Cleared
+     * when modal components are added or removed, or when the visibility,
+     * children, or z-order of components change while modal components exist.
+     */
+    private transient boolean modalContextRootValid;
+    
+    /**
+     * Registered components which have requested validation via 
+     * <code>Component.invalidateLayout()</code>, in order of request.
+     */
+    private Set invalidComponents;
+    
+    /**
+     * Flag indicating whether all registered components should be validated,
+     * rather than only those which have requested validation.
+     */
+    private boolean fullValidation;
+    
+    /**
+     * Generation counter for the cached render enabled/visible state of
+     * registered components, incremented whenever the enabled or visible 
+     * state of a registered component changes.  Never zero.
+     */
+    private int renderStateGeneration = 1;
+    
+    /**
+     * The most recently generated <code>ApplicationInstance</code>-unique 
+     * identifier value.
      * @see #generateId()
+     * @see RenderIdMap
      */
-    private long nextId;
+    private long lastId;
             
     /**
      * Flag indicating whether the application has been disposed, i.e., whether <code>ApplicationInstance.dispose()</code>
@@ -221,7 +382,11 @@ public abstract class ApplicationInstance implements Serializable {
         propertyChangeSupport = new PropertyChangeSupport(this);
         updateManager = new UpdateManager(this);
         renderIdToComponentMap = new HashMap();
-        taskQueueMap = new HashMap();
+        generatedRenderIdMap = new RenderIdMap();
+        idToComponentMap = new HashMap<>();
+        taskQueues = new CopyOnWriteArrayList<>();
+        taskWakeUpPending = new AtomicBoolean();
+        invalidComponents = new LinkedHashSet();
     }
     
     /**
@@ -232,6 +397,37 @@ public abstract class ApplicationInstance implements Serializable {
     public void activate() {
     }
 
+    /**
+     * Queues a registered component for validation.
+     * This method is invoked by <code>Component.invalidateLayout()</code>.
+     * 
+     * @param component the component requiring validation
+     * @see Component#invalidateLayout()
+     */
+    void addInvalidComponent(Component component) {
+        invalidComponents.add(component);
+    }
+
+    /**
+     * Adds a registered component to the id index.
+     * 
+     * @param component the component
+     * @param id the user-defined id of the component
+     */
+    private void addComponentId(Component component, String id) {
+        Object value = idToComponentMap.get(id);
+        if (value == null) {
+            idToComponentMap.put(id, component);
+        } else if (value instanceof Component) {
+            List components = new ArrayList(2);
+            components.add(value);
+            components.add(component);
+            idToComponentMap.put(id, components);
+        } else {
+            ((List) value).add(component);
+        }
+    }
+
     /**
      * Adds a <code>PropertyChangeListener</code> to receive notification of
      * application-level property changes.
@@ -254,13 +450,8 @@ public abstract class ApplicationInstance implements Serializable {
      * @see #removeTaskQueue(TaskQueueHandle)
      */
     public TaskQueueHandle createTaskQueue() {
-        TaskQueueHandle taskQueue = new TaskQueueHandle() { 
-            /** Serial Version UID. */
-            private static final long serialVersionUID = 20070101L;
-        };
-        synchronized (taskQueueMap) {
-            taskQueueMap.put(taskQueue, null);
-        }
+        TaskQueue taskQueue = new TaskQueue();
+        taskQueues.add(taskQueue);
         return taskQueue;
     }
     
@@ -277,9 +468,10 @@ public abstract class ApplicationInstance implements Serializable {
                 defaultWindow.doDispose();
                 defaultWindow.register(null);
             }
-            synchronized (taskQueueMap) {
-                taskQueueMap.clear();
+            for (TaskQueue taskQueue : taskQueues) {
+                taskQueue.remove();
             }
+            taskQueues.clear();
         } finally {
             disposed = true;
         }
@@ -305,22 +497,42 @@ public abstract class ApplicationInstance implements Serializable {
     }
     
     /**
-     * Validates all components registered with the application.
+     * Validates components registered with the application.
+     * Only components which have requested validation (by way of
+     * <code>Component.invalidateLayout()</code>) are validated, unless full
+     * validation is enabled, in which case all registered components are
+     * validated.
+     * 
+     * @see #setFullValidation(boolean)
      */
     public final void doValidation() {
-        doValidation(defaultWindow);
+        if (fullValidation) {
+            doValidation(defaultWindow);
+        }
+        // Validating a component may cause further components to request validation.
+        while (!invalidComponents.isEmpty()) {
+            Component[] components = (Component[]) invalidComponents.toArray(new Component[invalidComponents.size()]);
+            invalidComponents.clear();
+            for (int i = 0; i < components.length; ++i) {
+                if (components[i].getApplicationInstance() == this) {
+                    components[i].doValidate();
+                }
+            }
+        }
     }
     
     /**
      * Validates a single component and then recursively validates its 
      * children.  This is the recursive support method for
-     * the parameterless <code>doValidation()</code> method.
+     * the parameterless <code>doValidation()</code> method, used when full
+     * validation is enabled.
      *
      * @param c The component to be validated.
      * @see #doValidation()
      */
     private void doValidation(Component c) {
-        c.validate();
+        invalidComponents.remove(c);
+        c.doValidate();
         int size = c.getComponentCount();
         for (int index = 0; index < size; ++index) {
             doValidation(c.getComponent(index));
@@ -343,20 +555,50 @@ public abstract class ApplicationInstance implements Serializable {
      * <b>synchronously</b> in the user interface update thread.
      * Enqueuing a task in response to an external event will result 
      * in changes being pushed to the client.
+     * <p>
+     * This method may be invoked by any thread, and does not block.
+     * Tasks enqueued in a queue which has been removed are discarded, and
+     * are neither retained nor run.
      * 
      * @param taskQueue the <code>TaskQueueHandle</code> representing the
      *        queue into which this task should be placed
      * @param task the task to run on client/server synchronization
      */
     public void enqueueTask(TaskQueueHandle taskQueue, Runnable task) {
-        synchronized (taskQueueMap) {
-            List taskList = (List) taskQueueMap.get(taskQueue);
-            if (taskList == null) {
-                taskList = new ArrayList();
-                taskQueueMap.put(taskQueue, taskList);
-            }
-            taskList.add(task);
-            firePropertyChange(LAST_ENQUEUE_TASK_PROPERTY, null, System.currentTimeMillis());
+        enqueueTask(taskQueue, null, task);
+    }
+    
+    /**
+     * Enqueues a task to be run during the next client/server 
+     * synchronization, superseding any queued task with the same coalescing
+     * key.  While a task with an equal key remains queued, it is replaced 
+     * (retaining its position in the queue) rather than a second task being
+     * appended.  Tasks which update the state of a particular component may
+     * thus be enqueued at any rate, and only the latest will be run.
+     * <p>
+     * This method may be invoked by any thread, and does not block.
+     * 
+     * @param taskQueue the <code>TaskQueueHandle</code> representing the
+     *        queue into which this task should be placed
+     * @param coalesceKey the coalescing key, or null to always append the task
+     *        (coalescing keys must be <code>Serializable</code> and implement
+     *        <code>equals()</code>/<code>hashCode()</code>)
+     * @param task the task to run on client/server synchronization
+     * @see #enqueueTask(TaskQueueHandle, Runnable)
+     */
+    public void enqueueTask(TaskQueueHandle taskQueue, Object coalesceKey, Runnable task) {
+        boolean added;
+        if (coalesceKey == null) {
+            added = ((TaskQueue) taskQueue).add(task);
+        } else {
+            added = ((TaskQueue) taskQueue).add(coalesceKey, task);
+        }
+        if (!added) {
+            // Queue has been removed: the task is discarded.
+            return;
+        }
+        if (taskWakeUpPending.compareAndSet(false, true)) {
+            firePropertyChange(LAST_ENQUEUE_TASK_PROPERTY, null, Long.valueOf(System.currentTimeMillis()));
         }
     }
     
@@ -375,12 +617,14 @@ public abstract class ApplicationInstance implements Serializable {
      * Generates an identifier which is unique within this 
      * <code>ApplicationInstance</code>.  This identifier should not be
      * used outside of the context of this  <code>ApplicationInstance</code>.
+     * Generated identifiers begin with a digit, and thus never collide with
+     * custom component render ids.
      * 
      * @return the unique identifier
      * @see #generateSystemId()
      */
     public String generateId() {
-        return Long.toString(nextId++);
+        return RenderIdMap.encode(++lastId);
     }
     
     /**
@@ -407,6 +651,10 @@ public abstract class ApplicationInstance implements Serializable {
      *         render id is registered)
      */
     public Component getComponentByRenderId(String renderId) {
+        long generatedRenderId = RenderIdMap.decode(renderId);
+        if (generatedRenderId != 0) {
+            return generatedRenderIdMap.get(generatedRenderId);
+        }
         return (Component) renderIdToComponentMap.get(renderId);
     }
 
@@ -460,6 +708,21 @@ public abstract class ApplicationInstance implements Serializable {
      * @return the root component of the modal context
      */
     public Component getModalContextRoot() {
+        if (!modalContextRootValid) {
+            modalContextRoot = findModalContextRoot();
+            modalContextRootValid = true;
+        }
+        return modalContextRoot;
+    }
+    
+    /**
+     * Determines the root component of the current modal context.
+     * 
+     * @return the root component of the modal context, or null if no modal
+     *         context exists
+     * @see #getModalContextRoot()
+     */
+    private Component findModalContextRoot() {
         if (modalComponents == null || modalComponents.size() == 0) {
             // No components marked as modal.
             return null;
@@ -481,6 +744,26 @@ public abstract class ApplicationInstance implements Serializable {
         return findCurrentModalComponent(getDefaultWindow(), visibleModalComponents);  
     }
     
+    /**
+     * Returns the number of components currently registered with the 
+     * application.
+     * 
+     * @return the number of registered components
+     */
+    public int getRegisteredComponentCount() {
+        return generatedRenderIdMap.size() + renderIdToComponentMap.size();
+    }
+    
+    /**
+     * Returns the current render state generation, against which components
+     * validate their cached render enabled/visible state.
+     * 
+     * @return the render state generation
+     */
+    int getRenderStateGeneration() {
+        return renderStateGeneration;
+    }
+    
     /**
      * Retrieves the style for the specified specified class of 
      * component / style name.
@@ -493,9 +776,34 @@ public abstract class ApplicationInstance implements Serializable {
     public Style getStyle(Class componentClass, String styleName) {
         if (styleSheet == null) {
             return null;
-        } else {
-            return styleSheet.getStyle(styleName, componentClass, true);
         }
+        
+        if (styleSheet instanceof MutableStyleSheet) {
+            int modificationCount = ((MutableStyleSheet) styleSheet).getModificationCount();
+            if (modificationCount != resolvedStyleSheetModificationCount) {
+                // Style sheet modified in place: discard styles resolved from its previous state.
+                resolvedStyleCache = null;
+                resolvedStyleSheetModificationCount = modificationCount;
+            }
+        }
+        if (resolvedStyleCache == null) {
+            resolvedStyleCache = new HashMap<>();
+        }
+        Map<String, Object> classStyles = resolvedStyleCache.get(componentClass);
+        if (classStyles == null) {
+            classStyles = new HashMap<>();
+            resolvedStyleCache.put(componentClass, classStyles);
+        }
+        Object style = classStyles.get(styleName);
+        if (style == null) {
+            // Not yet resolved: search style sheet (including superclasses) once.
+            style = styleSheet.getStyle(styleName, componentClass, true);
+            if (style == null) {
+                style = NO_STYLE;
+            }
+            classStyles.put(styleName, style);
+        }
+        return style == NO_STYLE ? null : (Style) style;
     }
     
     /**
@@ -507,6 +815,60 @@ public abstract class ApplicationInstance implements Serializable {
         return styleSheet;
     }
     
+    /**
+     * Returns the maximum number of queued tasks run per synchronization.
+     * 
+     * @return the task count budget, or 0 if unlimited
+     * @see #setTaskCountBudget(int)
+     */
+    public int getTaskCountBudget() {
+        return taskCountBudget;
+    }
+    
+    /**
+     * Returns the maximum time spent running queued tasks per 
+     * synchronization.
+     * 
+     * @return the task time budget, in milliseconds, or 0 if unlimited
+     * @see #setTaskTimeBudget(long)
+     */
+    public long getTaskTimeBudget() {
+        return taskTimeBudget;
+    }
+    
+    /**
+     * Retrieves the registered component with the specified user-defined id
+     * which is, or is a descendant of, the specified component, using the
+     * id index.  The hierarchy is searched only in the event that multiple
+     * such components share the id.
+     * 
+     * @param searchRoot the component at which the search is rooted
+     * @param id the user-defined id
+     * @return the component, or null if none exists
+     * @see Component#getComponent(String)
+     */
+    Component getComponentById(Component searchRoot, String id) {
+        Object value = idToComponentMap.get(id);
+        if (value == null) {
+            return null;
+        } else if (value instanceof Component) {
+            return searchRoot.isAncestorOf((Component) value) ? (Component) value : null;
+        }
+        List components = (List) value;
+        Component match = null;
+        for (int i = 0; i < components.size(); ++i) {
+            Component component = (Component) components.get(i);
+            if (searchRoot.isAncestorOf(component)) {
+                if (match != null) {
+                    // Multiple matches: search the hierarchy to find the first.
+                    return searchRoot.findComponent(id);
+                }
+                match = component;
+            }
+        }
+        return match;
+    }
+    
     /**
      * Retrieves the <code>UpdateManager</code> being used to manage the
      * client/server synchronization of this <code>ApplicationInstance</code>
@@ -524,7 +886,7 @@ public abstract class ApplicationInstance implements Serializable {
      * @return true if the instance has any task queues
      */
     public final boolean hasTaskQueues() {
-        return taskQueueMap.size() > 0;
+        return !taskQueues.isEmpty();
     }
     
     /**
@@ -542,21 +904,45 @@ public abstract class ApplicationInstance implements Serializable {
      * @return true if any tasks are queued
      */
     public boolean hasQueuedTasks() {
-        if (taskQueueMap.size() == 0) {
-            return false;
-        }
-        synchronized (taskQueueMap) {
-            Iterator it = taskQueueMap.values().iterator();
-            while (it.hasNext()) {
-                List taskList = (List) it.next();
-                if (taskList != null && taskList.size() > 0) {
-                    return true;
-                }
+        for (TaskQueue taskQueue : taskQueues) {
+            if (!taskQueue.isEmpty()) {
+                return true;
             }
         }
         return false;
     }
     
+    /**
+     * Invalidates the cached render enabled/visible state of all registered
+     * components.  Invoked when the enabled or visible state of a registered
+     * component changes.
+     */
+    void invalidateRenderState() {
+        if (++renderStateGeneration == 0) {
+            renderStateGeneration = 1;
+        }
+    }
+    
+    /**
+     * Invalidates the cached modal context root, if modal components exist.
+     */
+    private void invalidateModalContextRoot() {
+        if (modalComponents != null && modalComponents.size() > 0) {
+            modalContextRootValid = false;
+        }
+    }
+    
+    /**
+     * Determines if every registered component is validated prior to 
+     * rendering, rather than only those which have requested validation.
+     * 
+     * @return true if full validation is enabled
+     * @see #setFullValidation(boolean)
+     */
+    public boolean isFullValidation() {
+        return fullValidation;
+    }
+    
     /**
      * Determines if the given component is modal (i.e., that only components
      * below it in the hierarchy should be enabled).
@@ -587,11 +973,13 @@ public abstract class ApplicationInstance implements Serializable {
      * @param parent the parent/updated component
      * @param propertyName the name of the property changed
      * @param oldValue the previous value of the property 
-     *        (or the removed component in the case of a
-     *        <code>CHILDREN_CHANGED_PROPERTY</code>)
+     *        (or the removed component(s) in the case of a
+     *        <code>CHILDREN_CHANGED_PROPERTY</code> or 
+     *        <code>CHILDREN_BATCH_CHANGED_PROPERTY</code>)
      * @param newValue the new value of the property 
-     *        (or the added component in the case of a
-     *        <code>CHILDREN_CHANGED_PROPERTY</code>)
+     *        (or the added component(s) in the case of a
+     *        <code>CHILDREN_CHANGED_PROPERTY</code> or 
+     *        <code>CHILDREN_BATCH_CHANGED_PROPERTY</code>)
      * @throws IllegalStateException in the event that the current thread is not
      *         permitted to update the state of the user interface
      */
@@ -604,17 +992,26 @@ public abstract class ApplicationInstance implements Serializable {
 
         ServerUpdateManager serverUpdateManager = updateManager.getServerUpdateManager();
         if (Component.CHILDREN_CHANGED_PROPERTY.equals(propertyName)) {
+            invalidateModalContextRoot();
             if (newValue == null) {
                 serverUpdateManager.processComponentRemove(parent, (Component) oldValue);
             } else {
                 serverUpdateManager.processComponentAdd(parent, (Component) newValue);
             }
+        } else if (Component.CHILDREN_BATCH_CHANGED_PROPERTY.equals(propertyName)) {
+            invalidateModalContextRoot();
+            if (newValue == null) {
+                serverUpdateManager.processComponentsRemove(parent, (Component[]) oldValue);
+            } else {
+                serverUpdateManager.processComponentsAdd(parent, (Component[]) newValue);
+            }
         } else if (Component.PROPERTY_LAYOUT_DATA.equals(propertyName)) {
             serverUpdateManager.processComponentLayoutDataUpdate(parent);
         } else if (Component.VISIBLE_CHANGED_PROPERTY.equals(propertyName)) {
             if (oldValue != null && newValue != null && oldValue.equals(newValue)) {
                 return;
             }
+            invalidateModalContextRoot();
             serverUpdateManager.processComponentVisibilityUpdate(parent);
         } else {
             if (oldValue != null && newValue != null && oldValue.equals(newValue)) {
@@ -622,6 +1019,8 @@ public abstract class ApplicationInstance implements Serializable {
             }
             if (parent instanceof ModalSupport && ModalSupport.MODAL_CHANGED_PROPERTY.equals(propertyName)) {
                 setModal(parent, ((Boolean) newValue));
+            } else if (WindowPane.PROPERTY_Z_INDEX.equals(propertyName)) {
+                invalidateModalContextRoot();
             }
             serverUpdateManager.processComponentPropertyUpdate(parent, propertyName, oldValue, newValue);
         }
@@ -650,28 +1049,64 @@ public abstract class ApplicationInstance implements Serializable {
     /**
      * Processes all queued tasks. This method may only be invoked from within a
      * UI thread by the <code>UpdateManager</code>. Tasks are removed from queues
-     * once they have been processed.
+     * once they have been processed.  Tasks enqueued while processing is
+     * underway are run in the next synchronization.
+     * <p>
+     * Tasks are taken from each queue in turn.  If a task count or time 
+     * budget is configured, processing stops once the budget is exhausted 
+     * (after running at least one task).  Remaining tasks are retained for
+     * the next synchronization, and the <code>LAST_ENQUEUE_TASK_PROPERTY</code>
+     * wake-up signal is fired to indicate that further work is pending.
+     * 
+     * @see #setTaskCountBudget(int)
+     * @see #setTaskTimeBudget(long)
      */
     public void processQueuedTasks() {
-        if (taskQueueMap.size() == 0) {
+        if (taskQueues.isEmpty()) {
             return;
         }
         
-        List currentTasks = new ArrayList();
-        synchronized (taskQueueMap) {
-            Iterator taskListsIt = taskQueueMap.values().iterator();
-            while (taskListsIt.hasNext()) {
-                List tasks = (List) taskListsIt.next();
-                if (tasks != null) {
-                    currentTasks.addAll(tasks);
-                    tasks.clear();
+        // Clear the wake-up flag before sampling queue sizes, such that any task enqueued after sampling fires a new signal.
+        taskWakeUpPending.set(false);
+        
+        TaskQueue[] currentQueues = taskQueues.toArray(new TaskQueue[taskQueues.size()]);
+        int[] taskCounts = new int[currentQueues.length];
+        int remainingCount = 0;
+        for (int i = 0; i < currentQueues.length; ++i) {
+            taskCounts[i] = currentQueues[i].size();
+            remainingCount += taskCounts[i];
+        }
+        
+        int remainingBudget = taskCountBudget == 0 ? Integer.MAX_VALUE : taskCountBudget;
+        long deadline = taskTimeBudget == 0 ? 0 : System.nanoTime() + taskTimeBudget * 1000000L;
+        boolean started = false;
+        
+        while (remainingCount > 0 && !disposed) {
+            for (int i = 0; i < currentQueues.length && !disposed; ++i) {
+                if (taskCounts[i] == 0) {
+                    continue;
                 }
+                if (started && (remainingBudget == 0 || (deadline != 0 && System.nanoTime() - deadline >= 0))) {
+                    // Budget exhausted: defer remaining tasks to the next synchronization.
+                    if (hasQueuedTasks() && taskWakeUpPending.compareAndSet(false, true)) {
+                        firePropertyChange(LAST_ENQUEUE_TASK_PROPERTY, null, Long.valueOf(System.currentTimeMillis()));
+                    }
+                    return;
+                }
+                Runnable task = currentQueues[i].poll();
+                if (task == null) {
+                    // Remaining counted tasks are still being added by their producers.
+                    remainingCount -= taskCounts[i];
+                    taskCounts[i] = 0;
+                    continue;
+                }
+                --taskCounts[i];
+                --remainingCount;
+                --remainingBudget;
+                started = true;
+                task.run();
             }
         }
-        Iterator it = currentTasks.iterator();
-        while (it.hasNext() && !disposed) {
-            ((Runnable) it.next()).run();
-        }
     }
     
     /**
@@ -685,19 +1120,49 @@ public abstract class ApplicationInstance implements Serializable {
      * @see Component#register(ApplicationInstance)
      */
     void registerComponent(Component component) {
-        String renderId = component.getRenderId();
-        if (renderId == null || renderIdToComponentMap.containsKey(renderId)) {
-            // Note that the render id is reassigned if it currently exists renderIdToComponentMap.  This could be the case
-            // in the event a Component was being used in a pool.
-            renderId = generateId();
-            component.assignRenderId(renderId);            
-        }
-        renderIdToComponentMap.put(renderId, component);
+        String customRenderId = component.getCustomRenderId();
+        if (customRenderId != null && !renderIdToComponentMap.containsKey(customRenderId)) {
+            renderIdToComponentMap.put(customRenderId, component);
+        } else {
+            long generatedRenderId = component.getGeneratedRenderId();
+            if (generatedRenderId == 0 || generatedRenderIdMap.containsKey(generatedRenderId)) {
+                // Note that the render id is reassigned if it is currently in use.  This could be the case
+                // in the event a Component was being used in a pool.
+                generatedRenderId = ++lastId;
+                component.assignRenderId(generatedRenderId);
+            }
+            generatedRenderIdMap.put(generatedRenderId, component);
+        }
+        if (component.getId() != null) {
+            addComponentId(component, component.getId());
+        }
+        if (component.isValidationRequired()) {
+            invalidComponents.add(component);
+        }
         if (component instanceof ModalSupport && ((ModalSupport) component).isModal()) {
             setModal(component, true);
         }
     }
     
+    /**
+     * Removes a registered component from the id index.
+     * 
+     * @param component the component
+     * @param id the user-defined id of the component
+     */
+    private void removeComponentId(Component component, String id) {
+        Object value = idToComponentMap.get(id);
+        if (value == component) {
+            idToComponentMap.remove(id);
+        } else if (value instanceof List) {
+            List components = (List) value;
+            components.remove(component);
+            if (components.size() == 1) {
+                idToComponentMap.put(id, components.get(0));
+            }
+        }
+    }
+    
     /**
      * Removes a <code>PropertyChangeListener</code> from receiving 
      * notification of application-level property changes.
@@ -717,9 +1182,68 @@ public abstract class ApplicationInstance implements Serializable {
      * @see #createTaskQueue()
      */
     public void removeTaskQueue(TaskQueueHandle taskQueueHandle) {
-        synchronized(taskQueueMap) {
-            taskQueueMap.remove(taskQueueHandle);
+        TaskQueue taskQueue = (TaskQueue) taskQueueHandle;
+        taskQueues.remove(taskQueue);
+        taskQueue.remove();
+    }
+    
+    /**
+     * Schedules a task to be enqueued in a task queue after a delay.  The
+     * task will subsequently be run <b>synchronously</b> in the user 
+     * interface update thread, as with <code>enqueueTask()</code>.
+     * <p>
+     * Scheduled tasks are expired by a timer shared amongst all 
+     * application instances, with a resolution of approximately ten 
+     * milliseconds: no thread is created per application.  Scheduled tasks 
+     * are cancelled when their task queue is removed or the application is
+     * disposed.  Scheduled tasks are not retained if the application is 
+     * serialized.
+     * 
+     * @param taskQueue the <code>TaskQueueHandle</code> representing the
+     *        queue into which the task should be placed
+     * @param task the task to run
+     * @param delay the delay, in milliseconds
+     * @return a <code>ScheduledTaskHandle</code> which may be used to cancel
+     *         the task
+     */
+    public ScheduledTaskHandle schedule(TaskQueueHandle taskQueue, Runnable task, long delay) {
+        if (delay < 0) {
+            throw new IllegalArgumentException("Delay must not be negative.");
+        }
+        ScheduledTask scheduledTask = new ScheduledTask(this, (TaskQueue) taskQueue, task, 0);
+        ((TaskQueue) taskQueue).addScheduledTask(scheduledTask);
+        TimerWheel.getInstance().schedule(scheduledTask, delay);
+        return scheduledTask;
+    }
+    
+    /**
+     * Schedules a task to be repeatedly enqueued in a task queue at a fixed
+     * rate, until cancelled or until the task queue is removed.  
+     * If a previous execution of the task remains queued (i.e., no 
+     * client/server synchronization has occurred since it was enqueued) 
+     * when the task is next due, that execution is skipped, such that 
+     * executions do not accumulate for inactive clients.
+     * 
+     * @param taskQueue the <code>TaskQueueHandle</code> representing the
+     *        queue into which the task should be placed
+     * @param task the task to run
+     * @param initialDelay the delay before the first execution, in milliseconds
+     * @param period the period between executions, in milliseconds
+     * @return a <code>ScheduledTaskHandle</code> which may be used to cancel
+     *         the task
+     * @see #schedule(TaskQueueHandle, Runnable, long)
+     */
+    public ScheduledTaskHandle scheduleAtFixedRate(TaskQueueHandle taskQueue, Runnable task, long initialDelay, long period) {
+        if (initialDelay < 0) {
+            throw new IllegalArgumentException("Initial delay must not be negative.");
+        }
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period must be positive.");
         }
+        ScheduledTask scheduledTask = new ScheduledTask(this, (TaskQueue) taskQueue, task, period);
+        ((TaskQueue) taskQueue).addScheduledTask(scheduledTask);
+        TimerWheel.getInstance().schedule(scheduledTask, initialDelay);
+        return scheduledTask;
     }
     
     /**
@@ -757,6 +1281,21 @@ public abstract class ApplicationInstance implements Serializable {
         window.doInit();
     }
     
+    /**
+     * Sets whether every registered component is validated prior to 
+     * rendering.  By default, only components which have requested 
+     * validation by invoking <code>Component.invalidateLayout()</code> are
+     * validated.  Full validation should be enabled for applications using 
+     * legacy components which override <code>validate()</code> without 
+     * requesting validation.
+     * 
+     * @param newValue true to validate all components on every 
+     *        synchronization
+     */
+    public void setFullValidation(boolean newValue) {
+        fullValidation = newValue;
+    }
+    
     /**
      * Sets the presently focused component.
      * 
@@ -817,6 +1356,7 @@ public abstract class ApplicationInstance implements Serializable {
                 modalComponents.remove(component);
             }
         }
+        modalContextRootValid = false;
         firePropertyChange(MODAL_COMPONENTS_CHANGED_PROPERTY, oldValue, newValue);
     }
 
@@ -833,14 +1373,50 @@ public abstract class ApplicationInstance implements Serializable {
      * client state to be updated.  Generally style sheets should
      * only be reconfigured at application initialization and/or when
      * the user changes the visual theme of a theme-capable application.
+     * <p>
+     * Styles retrieved from the <code>StyleSheet</code> are cached per 
+     * component class and style name.  The cache is discarded when a
+     * <code>MutableStyleSheet</code> is modified after being set.
      * 
      * @param newValue the new style sheet
      */
     public void setStyleSheet(StyleSheet newValue) {
         StyleSheet oldValue = styleSheet;
         this.styleSheet = newValue;
+        resolvedStyleCache = null;
         firePropertyChange(STYLE_SHEET_CHANGED_PROPERTY, oldValue, newValue);
     }
+    
+    /**
+     * Sets the maximum number of queued tasks run per synchronization.
+     * Tasks in excess of the budget are run in subsequent synchronizations.
+     * 
+     * @param newValue the new task count budget, or 0 for no limit
+     * @see #processQueuedTasks()
+     */
+    public void setTaskCountBudget(int newValue) {
+        if (newValue < 0) {
+            throw new IllegalArgumentException("Task count budget must not be negative.");
+        }
+        taskCountBudget = newValue;
+    }
+    
+    /**
+     * Sets the maximum time spent running queued tasks per synchronization,
+     * bounding the latency added to a client/server round trip by bursts of
+     * queued tasks.  Tasks remaining once the budget is exhausted are run in
+     * subsequent synchronizations.
+     * 
+     * @param newValue the new task time budget, in milliseconds, or 0 for
+     *        no limit
+     * @see #processQueuedTasks()
+     */
+    public void setTaskTimeBudget(long newValue) {
+        if (newValue < 0) {
+            throw new IllegalArgumentException("Task time budget must not be negative.");
+        }
+        taskTimeBudget = newValue;
+    }
 
     /**
      * Unregisters a component from the <code>ApplicationInstance</code>.
@@ -851,14 +1427,39 @@ public abstract class ApplicationInstance implements Serializable {
      * @see Component#register(ApplicationInstance)
      */
     void unregisterComponent(Component component) {
-        final String renderId = component.getRenderId();
-        component.assignLastRenderId(renderId);
-        renderIdToComponentMap.remove(renderId);
+        component.assignLastRenderId();
+        if (component.getCustomRenderId() == null) {
+            generatedRenderIdMap.remove(component.getGeneratedRenderId());
+        } else {
+            renderIdToComponentMap.remove(component.getCustomRenderId());
+        }
+        if (component.getId() != null) {
+            removeComponentId(component, component.getId());
+        }
+        invalidComponents.remove(component);
         if (component instanceof ModalSupport && ((ModalSupport) component).isModal()) {
             setModal(component, false);
         }
     }
     
+    /**
+     * Updates the id index in response to a change to the user-defined id of
+     * a registered component.
+     * This method is invoked by <code>Component.setId()</code>.
+     * 
+     * @param component the component
+     * @param oldValue the previous id
+     * @param newValue the new id
+     */
+    void updateComponentId(Component component, String oldValue, String newValue) {
+        if (oldValue != null) {
+            removeComponentId(component, oldValue);
+        }
+        if (newValue != null) {
+            addComponentId(component, newValue);
+        }
+    }
+    
     /**
      * Verifies that a <code>Component</code> is within the modal context, 
      * i.e., that if a modal <code>Component</code> is present, that it either 
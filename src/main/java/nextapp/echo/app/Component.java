@@ -32,9 +32,14 @@ import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 import nextapp.echo.app.event.EventListenerList;
 
@@ -155,6 +160,40 @@ public abstract class Component
      */
     private static final int FLAG_REGISTERING = 0x8;
 
+    /**
+     * Flag indicating that the <code>Component</code> has requested that its
+     * <code>validate()</code> method be invoked prior to the next rendering.
+     */
+    private static final int FLAG_VALIDATION_REQUIRED = 0x80;
+
+    /**
+     * Flag caching whether the <code>Component</code> and all of its ancestors
+     * are enabled.  Valid only when <code>renderStateGeneration</code> matches
+     * that of the <code>ApplicationInstance</code>.
+     */
+    private static final int FLAG_RENDER_ENABLED = 0x100;
+
+    /**
+     * Flag caching whether the <code>Component</code> and all of its ancestors
+     * are visible.  Valid only when <code>renderStateGeneration</code> matches
+     * that of the <code>ApplicationInstance</code>.
+     */
+    private static final int FLAG_RENDER_VISIBLE = 0x200;
+
+    /**
+     * Flag indicating that the last render id (the render id held when the
+     * <code>Component</code> was last unregistered) is the generated render 
+     * id, such that it need not be stored separately.
+     */
+    private static final int FLAG_LAST_RENDER_ID_GENERATED = 0x400;
+
+    /**
+     * Flag indicating that the <code>Component</code> is being moved within
+     * its parent by <code>reconcileChildren()</code>, such that it remains 
+     * registered and initialized while removed and re-added.
+     */
+    private static final int FLAG_MOVING = 0x800;
+
     /**
      * Property change event name for immediate children being made
      * visible/invisible. When used, the <code>newValue</code> of the event will
@@ -167,9 +206,22 @@ public abstract class Component
      * Property change event name for immediate children being added/removed.
      * When used, the <code>newValue</code> of the event will represent an added
      * child, OR the <code>oldValue</code> will represent a removed child.
+     * Bulk operations (<code>addAll()</code> and <code>removeAll()</code>)
+     * additionally fire <code>CHILDREN_BATCH_CHANGED_PROPERTY</code>, and 
+     * report individual children with this property only to registered
+     * <code>PropertyChangeListener</code>s.
      */
     public static final String CHILDREN_CHANGED_PROPERTY = "children";
 
+    /**
+     * Property change event name for immediate children being added/removed
+     * in bulk by <code>addAll()</code> or <code>removeAll()</code>.
+     * When used, the <code>newValue</code> of the event will be a 
+     * <code>Component[]</code> of added children, OR the <code>oldValue</code>
+     * will be a <code>Component[]</code> of removed children.
+     */
+    public static final String CHILDREN_BATCH_CHANGED_PROPERTY = "childrenBatch";
+
     /**
      * Property change event name for enabled state changes.
      */
@@ -243,6 +295,151 @@ public abstract class Component
      */
     public static final String PROPERTY_LAYOUT_DATA = "layoutData";
 
+    /**
+     * The local style of components on which no local properties have been
+     * set, shared by all such components.  Mutation is not supported: 
+     * components replace it with a new <code>MutableStyle</code> when a
+     * local property is first set.
+     */
+    private static final class EmptyLocalStyle extends MutableStyle {
+
+        /** Serial Version UID. */
+        private static final long serialVersionUID = 20070101L;
+
+        private static final EmptyLocalStyle INSTANCE = new EmptyLocalStyle();
+
+        /**
+         * @see nextapp.echo.app.MutableStyle#addStyleContent(nextapp.echo.app.Style)
+         */
+        public void addStyleContent(Style style) {
+            throw new UnsupportedOperationException("Shared empty local style may not be modified.");
+        }
+
+        /**
+         * Resolves deserialized instances to the shared instance.
+         *
+         * @return the shared instance
+         */
+        private Object readResolve() {
+            return INSTANCE;
+        }
+
+        /**
+         * @see nextapp.echo.app.MutableStyle#removeIndexedProperty(java.lang.String, int)
+         */
+        public void removeIndexedProperty(String propertyName, int propertyIndex) {
+        }
+
+        /**
+         * @see nextapp.echo.app.MutableStyle#removeProperty(java.lang.String)
+         */
+        public void removeProperty(String propertyName) {
+        }
+
+        /**
+         * @see nextapp.echo.app.MutableStyle#set(java.lang.String, java.lang.Object)
+         */
+        public void set(String propertyName, Object propertyValue) {
+            throw new UnsupportedOperationException("Shared empty local style may not be modified.");
+        }
+
+        /**
+         * @see nextapp.echo.app.MutableStyle#setIndex(java.lang.String, int, java.lang.Object)
+         */
+        public void setIndex(String propertyName, int propertyIndex, Object propertyValue) {
+            throw new UnsupportedOperationException("Shared empty local style may not be modified.");
+        }
+
+        /**
+         * @see nextapp.echo.app.MutableStyle#setIndexedProperty(java.lang.String, int, java.lang.Object)
+         */
+        public void setIndexedProperty(String propertyName, int propertyIndex, Object propertyValue) {
+            throw new UnsupportedOperationException("Shared empty local style may not be modified.");
+        }
+
+        /**
+         * @see nextapp.echo.app.MutableStyle#setProperty(java.lang.String, java.lang.Object)
+         */
+        public void setProperty(String propertyName, Object propertyValue) {
+            throw new UnsupportedOperationException("Shared empty local style may not be modified.");
+        }
+    }
+
+    /**
+     * Storage for <code>Component</code> state which is rarely set.  Allocated
+     * only when such state is first set, such that most components carry a 
+     * single null reference in its place.
+     */
+    private static final class RareFields 
+    implements Serializable {
+
+        /** Serial Version UID. */
+        private static final long serialVersionUID = 20070101L;
+
+        /**
+         * A user-defined identifier for this component. This identifier is not
+         * related in any way to <code>renderId</code>.
+         */
+        private String id;
+
+        /**
+         * The layout direction of the component. This property is generally unset,
+         * as layout direction information is normally inherited from the
+         * <code>ApplicationInstance</code> or from an ancestor
+         * <code>Component</code> in the hierarchy.
+         */
+        private LayoutDirection layoutDirection;
+
+        /**
+         * Listener storage.
+         */
+        private EventListenerList listenerList;
+
+        /**
+         * The locale of the component. This property is generally unset, as locale
+         * information is normally inherited from the
+         * <code>ApplicationInstance</code> or from an ancestor
+         * <code>Component</code> in the hierarchy.
+         */
+        private Locale locale;
+
+        /**
+         * The property change event dispatcher. This object is lazily instantiated.
+         */
+        private PropertyChangeSupport propertyChangeSupport;
+
+        /**
+         * A custom application-wide unique identifier for this component, as set
+         * by <code>setRenderId()</code>, or null if the render id is generated. 
+         * This identifier is not related in any way to <code>id</code>.
+         */
+        private String customRenderId;
+
+        /**
+         * <b>Last active renderId!</b>
+         * Set when component is unregistering from application instance, 
+         * unless the last render id is the generated render id.
+         *
+         * @see #FLAG_LAST_RENDER_ID_GENERATED
+         */
+        private String lastRenderId;
+
+        /**
+         * Shared style.
+         */
+        private Style sharedStyle;
+
+        /**
+         * Render id of previous focus traversal component.
+         */
+        private String focusPreviousId;
+
+        /**
+         * Render id of next focus traversal component.
+         */
+        private String focusNextId;
+    }
+
     /**
      * Verifies a character can be used as initial character in a renderId
      * Character must be a (7-bit ASCII) letter.
@@ -278,6 +475,13 @@ public abstract class Component
      */
     private List children;
 
+    /**
+     * The visible children of this component, in order.  Lazily rebuilt
+     * following changes to the children or to their visibility (null when
+     * invalid).
+     */
+    private transient Component[] visibleChildren;
+
     /**
      * Boolean flags for this component, including enabled state and visibility.
      * Multiple booleans are wrapped in a single integer for memory use
@@ -286,34 +490,17 @@ public abstract class Component
     private int flags;
 
     /**
-     * A user-defined identifier for this component. This identifier is not
-     * related in any way to <code>renderId</code>.
-     */
-    private String id;
-
-    /**
-     * The layout direction of the component. This property is generally unset,
-     * as layout direction information is normally inherited from the
-     * <code>ApplicationInstance</code> or from an ancestor
-     * <code>Component</code> in the hierarchy.
-     */
-    private LayoutDirection layoutDirection;
-
-    /**
-     * Listener storage.
+     * The render state generation of the <code>ApplicationInstance</code> at
+     * which the <code>FLAG_RENDER_ENABLED</code> and 
+     * <code>FLAG_RENDER_VISIBLE</code> flags were computed, or 0 if they have
+     * not been computed since the <code>Component</code> was last registered.
      */
-    private EventListenerList listenerList;
-
-    /**
-     * The locale of the component. This property is generally unset, as locale
-     * information is normally inherited from the
-     * <code>ApplicationInstance</code> or from an ancestor
-     * <code>Component</code> in the hierarchy.
-     */
-    private Locale locale;
+    private int renderStateGeneration;
 
     /**
      * Local style data storage for properties directly set on component itself.
+     * Set to the shared <code>EmptyLocalStyle</code> instance until a property
+     * is first set.
      */
     private MutableStyle localStyle;
 
@@ -323,28 +510,18 @@ public abstract class Component
     private Component parent;
 
     /**
-     * The property change event dispatcher. This object is lazily instantiated.
-     */
-    private PropertyChangeSupport propertyChangeSupport;
-
-    /**
-     * A application-wide unique identifier for this component. This identifier
-     * is not related in any way to <code>id</code>.
-     */
-    private String renderId;
-
-    /**
-     * <b>Last active renderId!</b>
-     * Set when component is unregistering from application instance!
-     *
-     * @see #renderId
+     * The value of the generated application-wide unique identifier for this
+     * component, or 0 if none has been generated.
+     * 
+     * @see RenderIdMap
      */
-    private String lastRenderId;
+    private long generatedRenderId;
 
     /**
-     * Shared style.
+     * The encoded form of <code>generatedRenderId</code>, created on first
+     * request, or null if it has not been created.
      */
-    private Style sharedStyle;
+    private transient String encodedRenderId;
 
     /**
      * Name of style to use from application style sheet
@@ -352,14 +529,9 @@ public abstract class Component
     private String styleName;
 
     /**
-     * Render id of previous focus traversal component.
+     * Storage for rarely set state, or null if none has been set.
      */
-    private String focusPreviousId;
-
-    /**
-     * Render id of next focus traversal component.
-     */
-    private String focusNextId;
+    private RareFields rareFields;
 
     /**
      * Creates a new <code>Component</code>.
@@ -367,7 +539,7 @@ public abstract class Component
     public Component() {
         super();
         flags = FLAG_ENABLED | FLAG_VISIBLE;
-        localStyle = new MutableStyle();
+        localStyle = EmptyLocalStyle.INSTANCE;
     }
 
     /**
@@ -382,10 +554,11 @@ public abstract class Component
 
     /**
      * Adds the specified <code>Component</code> as the <code>n</code>th child
-     * of this component. All component-add operations use this method to add
-     * components. <code>Component</code>s that require notification of all
-     * child additions should override this method (making sure to call the
-     * superclass' implementation). If the child component currently has a
+     * of this component. All component-add operations other than
+     * <code>addAll()</code> use this method to add components.
+     * <code>Component</code>s that require notification of all child
+     * additions should override this method and <code>addAll()</code> (making
+     * sure to call the superclass' implementation). If the child component currently has a
      * parent in another hierarchy, it will automatically be removed from that
      * hierarchy before being added to this component. This behavior will also
      * occur if the child component is currently a child of this component.
@@ -427,6 +600,17 @@ public abstract class Component
         } else {
             children.add(n, c);
         }
+        visibleChildren = null;
+
+        if ((c.flags & FLAG_MOVING) != 0) {
+            // Moved child remains registered and initialized.
+            if (applicationInstance != null) {
+                // Render state may have been cached while the child was detached.
+                applicationInstance.invalidateRenderState();
+            }
+            firePropertyChange(CHILDREN_CHANGED_PROPERTY, null, c);
+            return;
+        }
 
         // Flag child as registered.
         if (applicationInstance != null) {
@@ -440,16 +624,117 @@ public abstract class Component
         c.doInit();
     }
 
+    /**
+     * Adds the specified <code>Component</code>s as children of this
+     * <code>Component</code>, after any existing children.  The children are
+     * registered and initialized in a single pass and a single
+     * <code>CHILDREN_BATCH_CHANGED_PROPERTY</code> event is fired, whose
+     * <code>newValue</code> is a <code>Component[]</code> of the added
+     * children.  Registered <code>PropertyChangeListener</code>s of 
+     * <code>CHILDREN_CHANGED_PROPERTY</code> are additionally notified of
+     * each added child.
+     * <p>
+     * This method does not invoke <code>add()</code>;
+     * <code>Component</code>s which require notification of all child
+     * additions should override this method as well.
+     *
+     * @param components the child components to add
+     * @throws IllegalChildException if any child is not allowed to be added to
+     *         this component, in which case no children are added
+     * @throws IllegalArgumentException if the collection contains null or the 
+     *         same <code>Component</code> more than once
+     */
+    public void addAll(Collection<? extends Component> components)
+            throws IllegalChildException {
+        if (components.isEmpty()) {
+            return;
+        }
+        Component[] added = components.toArray(new Component[components.size()]);
+
+        Set<Component> addedSet = Collections.newSetFromMap(new IdentityHashMap<>(added.length));
+        for (int i = 0; i < added.length; ++i) {
+            Component c = added[i];
+            if (c == null) {
+                throw new IllegalArgumentException("Cannot add null child.");
+            }
+            if (!addedSet.add(c)) {
+                throw new IllegalArgumentException("Component appears more than once in child list: " + c);
+            }
+        }
+
+        // Ensure all children are acceptable before modifying hierarchy.  Each child is validated against the child list
+        // as it would stand after adding its predecessors, such that count-limited containers see the pending total.
+        List originalChildren = children;
+        List pendingChildren = new ArrayList(Math.max(CHILD_LIST_CAPACITY, 
+                (children == null ? 0 : children.size()) + added.length));
+        if (children != null) {
+            for (int i = 0; i < children.size(); ++i) {
+                if (!addedSet.contains(children.get(i))) {
+                    pendingChildren.add(children.get(i));
+                }
+            }
+        }
+        try {
+            children = pendingChildren;
+            visibleChildren = null;
+            for (int i = 0; i < added.length; ++i) {
+                if (!isValidChild(added[i]) || !added[i].isValidParent(this)) {
+                    throw new IllegalChildException(this, added[i]);
+                }
+                pendingChildren.add(added[i]);
+            }
+        } finally {
+            children = originalChildren;
+            visibleChildren = null;
+        }
+
+        // Remove children from their current parents if required.
+        for (int i = 0; i < added.length; ++i) {
+            if (added[i].parent != null) {
+                added[i].parent.remove(added[i]);
+            }
+        }
+
+        // Connect children to parent.
+        if (children == null) {
+            children = new ArrayList(Math.max(CHILD_LIST_CAPACITY, added.length));
+        } else {
+            ((ArrayList) children).ensureCapacity(children.size() + added.length);
+        }
+        for (int i = 0; i < added.length; ++i) {
+            added[i].parent = this;
+            children.add(added[i]);
+        }
+        visibleChildren = null;
+
+        // Flag children as registered.
+        if (applicationInstance != null) {
+            for (int i = 0; i < added.length; ++i) {
+                added[i].register(applicationInstance);
+            }
+        }
+
+        // Notify PropertyChangeListeners of change.
+        firePropertyChange(CHILDREN_BATCH_CHANGED_PROPERTY, null, added);
+        fireChildrenChanged(added, true);
+
+        // Initialize components.
+        for (int i = 0; i < added.length; ++i) {
+            added[i].doInit();
+        }
+    }
+
     /**
      * Adds a property change listener to this <code>Component</code>.
      *
      * @param l the listener to add
      */
     public void addPropertyChangeListener(PropertyChangeListener l) {
-        if (propertyChangeSupport == null) {
-            propertyChangeSupport = new PropertyChangeSupport(this);
+        RareFields rareFields = getRareFields();
+        if (rareFields.propertyChangeSupport == null) {
+            rareFields.propertyChangeSupport = new PropertyChangeSupport(this);
         }
-        propertyChangeSupport.addPropertyChangeListener(l);
+        rareFields.propertyChangeSupport.addPropertyChangeListener(l);
     }
 
     /**
@@ -460,29 +745,55 @@ public abstract class Component
      * @param l the listener to add
      */
     public void addPropertyChangeListener(String propertyName, PropertyChangeListener l) {
-        if (propertyChangeSupport == null) {
-            propertyChangeSupport = new PropertyChangeSupport(this);
+        RareFields rareFields = getRareFields();
+        if (rareFields.propertyChangeSupport == null) {
+            rareFields.propertyChangeSupport = new PropertyChangeSupport(this);
         }
-        propertyChangeSupport.addPropertyChangeListener(propertyName, l);
+        rareFields.propertyChangeSupport.addPropertyChangeListener(propertyName, l);
     }
 
     /**
-     * Internal method to set the render identifier of
-     * the<code>Component</code>. This method is invoked by the
-     * <code>ApplicationInstance</code> when the component is registered or
-     * unregistered, or by manual invocation of <code>setRenderId()</code>. This
-     * method performs no error checking.
+     * Internal method to assign a generated render identifier to the 
+     * <code>Component</code>, replacing any custom render identifier. This
+     * method is invoked by the <code>ApplicationInstance</code> when the 
+     * component is registered. This method performs no error checking.
      *
-     * @param renderId the new identifier
+     * @param generatedRenderId the value of the new identifier
      * @see #getRenderId()
-     * @see #setRenderId(java.lang.String)
      */
-    void assignRenderId(String renderId) {
-        this.renderId = renderId;
+    void assignRenderId(long generatedRenderId) {
+        if (rareFields != null) {
+            rareFields.customRenderId = null;
+        }
+        if (this.generatedRenderId != generatedRenderId) {
+            storeLastRenderId();
+            encodedRenderId = null;
+        }
+        this.generatedRenderId = generatedRenderId;
     }
 
-    void assignLastRenderId(String renderId) {
-        this.lastRenderId = renderId;
+    /**
+     * Internal method to record the current render identifier as the last
+     * render identifier of the <code>Component</code>.  This method is 
+     * invoked by the <code>ApplicationInstance</code> when the component is
+     * unregistered.  Generated render identifiers are not stored, but rather
+     * derived from the retained <code>generatedRenderId</code> on demand.
+     *
+     * @see #getLastRenderId()
+     */
+    void assignLastRenderId() {
+        String customRenderId = getCustomRenderId();
+        if (customRenderId == null && generatedRenderId != 0) {
+            flags |= FLAG_LAST_RENDER_ID_GENERATED;
+            if (rareFields != null) {
+                rareFields.lastRenderId = null;
+            }
+        } else {
+            flags &= ~FLAG_LAST_RENDER_ID_GENERATED;
+            if (customRenderId != null || rareFields != null) {
+                getRareFields().lastRenderId = customRenderId;
+            }
+        }
     }
 
     /**
@@ -557,6 +868,33 @@ public abstract class Component
         }
     }
 
+    /**
+     * Reports the children of a bulk addition or removal individually to 
+     * <code>PropertyChangeListener</code>s of 
+     * <code>CHILDREN_CHANGED_PROPERTY</code>, if any are registered, as 
+     * <code>add()</code> and <code>remove()</code> would.  The 
+     * <code>ApplicationInstance</code> is notified only of the batch.
+     *
+     * @param changed the added or removed children
+     * @param added true if the children were added, false if removed
+     */
+    private void fireChildrenChanged(Component[] changed, boolean added) {
+        if (rareFields == null || rareFields.propertyChangeSupport == null
+                || !rareFields.propertyChangeSupport.hasListeners(CHILDREN_CHANGED_PROPERTY)) {
+            return;
+        }
+        if (added) {
+            for (int i = 0; i < changed.length; ++i) {
+                rareFields.propertyChangeSupport.firePropertyChange(CHILDREN_CHANGED_PROPERTY, null, changed[i]);
+            }
+        } else {
+            // Report removals last to first, as removal by remove() would.
+            for (int i = changed.length - 1; i >= 0; --i) {
+                rareFields.propertyChangeSupport.firePropertyChange(CHILDREN_CHANGED_PROPERTY, changed[i], null);
+            }
+        }
+    }
+
     /**
      * Reports a bound property change to <code>PropertyChangeListener</code>s
      * and to the <code>ApplicationInstance</code>'s update management system.
@@ -567,8 +905,8 @@ public abstract class Component
      */
     protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
         // Report to PropertyChangeListeners.
-        if (propertyChangeSupport != null) {
-            propertyChangeSupport.firePropertyChange(propertyName, oldValue, newValue);
+        if (rareFields != null && rareFields.propertyChangeSupport != null) {
+            rareFields.propertyChangeSupport.firePropertyChange(propertyName, oldValue, newValue);
         }
 
         // Report to ApplicationInstance.
@@ -644,7 +982,23 @@ public abstract class Component
      * component or is a descendant of it, or null otherwise
      */
     public final Component getComponent(String id) {
-        if (id.equals(this.id)) {
+        if (applicationInstance != null) {
+            // Registered components are indexed by id.
+            return applicationInstance.getComponentById(this, id);
+        }
+        return findComponent(id);
+    }
+
+    /**
+     * Recursively searches this component and its descendants, depth first,
+     * for the component with the specified id.
+     *
+     * @param id the user-defined id of the component to be retrieved
+     * @return the first component with the specified id, or null if none exists
+     * @see #getComponent(String)
+     */
+    Component findComponent(String id) {
+        if (rareFields != null && id.equals(rareFields.id)) {
             return this;
         }
         if (children == null) {
@@ -653,7 +1007,7 @@ public abstract class Component
         Iterator it = children.iterator();
         while (it.hasNext()) {
             Component testComponent = (Component) it.next();
-            Component targetComponent = testComponent.getComponent(id);
+            Component targetComponent = testComponent.findComponent(id);
             if (targetComponent != null) {
                 return targetComponent;
             }
@@ -713,10 +1067,11 @@ public abstract class Component
      * @return the listener list
      */
     protected EventListenerList getEventListenerList() {
-        if (listenerList == null) {
-            listenerList = new EventListenerList();
+        RareFields rareFields = getRareFields();
+        if (rareFields.listenerList == null) {
+            rareFields.listenerList = new EventListenerList();
         }
-        return listenerList;
+        return rareFields.listenerList;
     }
 
     /**
@@ -726,7 +1081,7 @@ public abstract class Component
      * @see #setFocusNextId
      */
     public String getFocusNextId() {
-        return focusNextId;
+        return rareFields == null ? null : rareFields.focusNextId;
     }
 
     /**
@@ -736,7 +1091,7 @@ public abstract class Component
      * @see #setFocusPreviousId
      */
     public String getFocusPreviousId() {
-        return focusPreviousId;
+        return rareFields == null ? null : rareFields.focusPreviousId;
     }
 
     /**
@@ -769,7 +1124,7 @@ public abstract class Component
      * @return the user-defined identifier
      */
     public String getId() {
-        return id;
+        return rareFields == null ? null : rareFields.id;
     }
 
     /**
@@ -808,7 +1163,7 @@ public abstract class Component
      * <code>Component</code>
      */
     public LayoutDirection getLayoutDirection() {
-        return layoutDirection;
+        return rareFields == null ? null : rareFields.layoutDirection;
     }
 
     /**
@@ -820,7 +1175,7 @@ public abstract class Component
      * <code>Component</code>
      */
     public Locale getLocale() {
-        return locale;
+        return rareFields == null ? null : rareFields.locale;
     }
 
     /**
@@ -844,6 +1199,18 @@ public abstract class Component
         return parent;
     }
 
+    /**
+     * Returns the storage for rarely set state, creating it if necessary.
+     *
+     * @return the <code>RareFields</code>
+     */
+    private RareFields getRareFields() {
+        if (rareFields == null) {
+            rareFields = new RareFields();
+        }
+        return rareFields;
+    }
+
     /**
      * Returns the render id of this component. This id is only guaranteed to be
      * unique within the <code>ApplicationInstance</code> to which this
@@ -855,7 +1222,42 @@ public abstract class Component
      * @see nextapp.echo.app.RenderIdSupport#getRenderId()
      */
     public String getRenderId() {
-        return renderId;
+        if (rareFields != null && rareFields.customRenderId != null) {
+            return rareFields.customRenderId;
+        }
+        return generatedRenderId == 0 ? null : getEncodedRenderId();
+    }
+
+    /**
+     * Returns the custom render id of this component, if one has been set.
+     *
+     * @return the custom render id, or null if the render id is generated
+     * @see #setRenderId(java.lang.String)
+     */
+    String getCustomRenderId() {
+        return rareFields == null ? null : rareFields.customRenderId;
+    }
+
+    /**
+     * Returns the encoded form of the generated render id, encoding it on 
+     * first request.
+     *
+     * @return the encoded generated render id
+     */
+    private String getEncodedRenderId() {
+        if (encodedRenderId == null) {
+            encodedRenderId = RenderIdMap.encode(generatedRenderId);
+        }
+        return encodedRenderId;
+    }
+
+    /**
+     * Returns the value of the generated render id of this component.
+     *
+     * @return the generated render id value, or 0 if none has been generated
+     */
+    long getGeneratedRenderId() {
+        return generatedRenderId;
     }
 
     /**
@@ -864,7 +1266,10 @@ public abstract class Component
      * @see #lastRenderId
      */
     public String getLastRenderId() {
-        return lastRenderId;
+        if ((flags & FLAG_LAST_RENDER_ID_GENERATED) != 0) {
+            return getEncodedRenderId();
+        }
+        return rareFields == null ? null : rareFields.lastRenderId;
     }
 
     /**
@@ -911,9 +1316,10 @@ public abstract class Component
         if (localStyle.isIndexedPropertySet(propertyName, propertyIndex)) {
             // Return local style value.
             return localStyle.getIndex(propertyName, propertyIndex);
-        } else if (sharedStyle != null && sharedStyle.isIndexedPropertySet(propertyName, propertyIndex)) {
+        } else if (rareFields != null && rareFields.sharedStyle != null 
+                && rareFields.sharedStyle.isIndexedPropertySet(propertyName, propertyIndex)) {
             // Return style value specified in shared style.
-            return sharedStyle.getIndex(propertyName, propertyIndex);
+            return rareFields.sharedStyle.getIndex(propertyName, propertyIndex);
         } else {
             if (applicationInstance != null) {
                 Style applicationStyle = applicationInstance.getStyle(getClass(), styleName);
@@ -939,6 +1345,7 @@ public abstract class Component
      * @return the locale for this component
      */
     public final Locale getRenderLocale() {
+        Locale locale = rareFields == null ? null : rareFields.locale;
         if (locale == null) {
             if (parent == null) {
                 if (applicationInstance == null) {
@@ -998,8 +1405,8 @@ public abstract class Component
         if (propertyValue != null) {
             return propertyValue;
         }
-        if (sharedStyle != null) {
-            propertyValue = sharedStyle.get(propertyName);
+        if (rareFields != null && rareFields.sharedStyle != null) {
+            propertyValue = rareFields.sharedStyle.get(propertyName);
             if (propertyValue != null) {
                 return propertyValue;
             }
@@ -1028,7 +1435,7 @@ public abstract class Component
      * @return the shared <code>Style</code>
      */
     public final Style getStyle() {
-        return sharedStyle;
+        return rareFields == null ? null : rareFields.sharedStyle;
     }
 
     /**
@@ -1072,22 +1479,11 @@ public abstract class Component
      * @throws IndexOutOfBoundsException when the index is invalid
      */
     public final Component getVisibleComponent(int n) {
-        if (children == null) {
+        Component[] visible = getVisibleChildren();
+        if (n < 0 || n >= visible.length) {
             throw new IndexOutOfBoundsException(Integer.toString(n));
         }
-        int visibleComponentCount = 0;
-        Component component = null;
-        Iterator it = children.iterator();
-        while (visibleComponentCount <= n) {
-            if (!it.hasNext()) {
-                throw new IndexOutOfBoundsException(Integer.toString(n));
-            }
-            component = (Component) it.next();
-            if (component.isVisible()) {
-                ++visibleComponentCount;
-            }
-        }
-        return component;
+        return visible[n];
     }
 
     /**
@@ -1098,19 +1494,7 @@ public abstract class Component
      * <code>Component</code>s
      */
     public final int getVisibleComponentCount() {
-        if (children == null) {
-            return 0;
-        } else {
-            int visibleComponentCount = 0;
-            Iterator it = children.iterator();
-            while (it.hasNext()) {
-                Component component = (Component) it.next();
-                if (component.isVisible()) {
-                    ++visibleComponentCount;
-                }
-            }
-            return visibleComponentCount;
-        }
+        return getVisibleChildren().length;
     }
 
     /**
@@ -1121,19 +1505,43 @@ public abstract class Component
      * <code>Component</code>s
      */
     public final Component[] getVisibleComponents() {
-        if (children == null) {
-            return EMPTY_COMPONENT_ARRAY;
-        } else {
-            Iterator it = children.iterator();
-            List visibleChildList = new ArrayList();
-            while (it.hasNext()) {
-                Component component = (Component) it.next();
-                if (component.isVisible()) {
-                    visibleChildList.add(component);
+        Component[] visible = getVisibleChildren();
+        return visible.length == 0 ? EMPTY_COMPONENT_ARRAY : visible.clone();
+    }
+
+    /**
+     * Returns the cached array of visible children, rebuilding it if 
+     * necessary.  The returned array must not be modified.
+     *
+     * @return the visible children
+     */
+    private Component[] getVisibleChildren() {
+        if (visibleChildren == null) {
+            if (children == null) {
+                visibleChildren = EMPTY_COMPONENT_ARRAY;
+            } else {
+                int childCount = children.size();
+                int visibleCount = 0;
+                for (int i = 0; i < childCount; ++i) {
+                    if (((Component) children.get(i)).isVisible()) {
+                        ++visibleCount;
+                    }
+                }
+                if (visibleCount == 0) {
+                    visibleChildren = EMPTY_COMPONENT_ARRAY;
+                } else {
+                    visibleChildren = new Component[visibleCount];
+                    int visibleIndex = 0;
+                    for (int i = 0; i < childCount; ++i) {
+                        Component component = (Component) children.get(i);
+                        if (component.isVisible()) {
+                            visibleChildren[visibleIndex++] = component;
+                        }
+                    }
                 }
             }
-            return (Component[]) visibleChildList.toArray(new Component[visibleChildList.size()]);
         }
+        return visibleChildren;
     }
 
     /**
@@ -1146,7 +1554,7 @@ public abstract class Component
      * @return true if a local <code>EventListenerList</code> exists
      */
     protected boolean hasEventListenerList() {
-        return listenerList != null;
+        return rareFields != null && rareFields.listenerList != null;
     }
 
     /**
@@ -1171,6 +1579,37 @@ public abstract class Component
     public void init() {
     }
 
+    /**
+     * Requests that the <code>validate()</code> life-cycle method of this
+     * <code>Component</code> be invoked before the next rendering. Unless the
+     * <code>ApplicationInstance</code> is configured to perform full
+     * validation, only components which have invoked this method are
+     * validated. Components overriding <code>validate()</code> should invoke
+     * this method whenever their state becomes invalid.
+     *
+     * @see ApplicationInstance#setFullValidation(boolean)
+     */
+    protected void invalidateLayout() {
+        if ((flags & FLAG_VALIDATION_REQUIRED) != 0) {
+            // Already queued for validation.
+            return;
+        }
+        flags |= FLAG_VALIDATION_REQUIRED;
+        if (applicationInstance != null) {
+            applicationInstance.addInvalidComponent(this);
+        }
+    }
+
+    /**
+     * Determines if the <code>Component</code> has requested validation.
+     *
+     * @return true if <code>invalidateLayout()</code> has been invoked since
+     * the component was last validated
+     */
+    boolean isValidationRequired() {
+        return (flags & FLAG_VALIDATION_REQUIRED) != 0;
+    }
+
     /**
      * Determines if this <code>Component</code> is or is an ancestor of the
      * specified <code>Component</code>.
@@ -1229,6 +1668,12 @@ public abstract class Component
      * @return true if the component should be rendered enabled.
      */
     public final boolean isRenderEnabled() {
+        if (applicationInstance != null) {
+            validateRenderState(applicationInstance.getRenderStateGeneration());
+            if (renderStateGeneration != 0) {
+                return (flags & FLAG_RENDER_ENABLED) != 0;
+            }
+        }
         Component component = this;
         while (component != null) {
             if ((component.flags & FLAG_ENABLED) == 0) {
@@ -1246,6 +1691,12 @@ public abstract class Component
      * @return true if the <code>Component</code> is recursively visible
      */
     public final boolean isRenderVisible() {
+        if (applicationInstance != null) {
+            validateRenderState(applicationInstance.getRenderStateGeneration());
+            if (renderStateGeneration != 0) {
+                return (flags & FLAG_RENDER_VISIBLE) != 0;
+            }
+        }
         Component component = this;
         while (component != null) {
             if ((component.flags & FLAG_VISIBLE) == 0) {
@@ -1312,6 +1763,176 @@ public abstract class Component
     public void processInput(String inputName, Object inputValue) {
     }
 
+    /**
+     * Updates the children of this <code>Component</code> to match the
+     * specified list, performing a minimal number of remove, move, and add
+     * operations.  Existing children are matched by identity.
+     * <p>
+     * Children which do not appear in the new list are removed with
+     * <code>remove()</code>.  Components in the new list which are not current
+     * children are added with <code>add()</code>.  Of the children which are
+     * retained, the largest set whose relative order is unchanged is left in
+     * place; the remaining retained children are moved by way of 
+     * <code>remove()</code> and <code>add()</code>.  Retained children,
+     * whether moved or not, remain registered and initialized, i.e., their
+     * <code>init()</code> and <code>dispose()</code> methods are not invoked.
+     * <p>
+     * All added children are validated before the hierarchy is modified.
+     * Should <code>remove()</code> or <code>add()</code> nonetheless fail, 
+     * the exception is propagated and any moved child which could not be 
+     * re-added is fully removed (disposed and unregistered).
+     *
+     * @param newChildren the new child <code>Component</code>s, in order
+     * @throws IllegalArgumentException if the list contains null or the same
+     *         <code>Component</code> more than once
+     * @throws IllegalChildException if a new child is not allowed to be added
+     *         to this component, in which case the children are not modified
+     */
+    public void reconcileChildren(List<Component> newChildren) {
+        int newCount = newChildren.size();
+        Map<Component, Integer> newIndices = new IdentityHashMap<>(newCount);
+        for (int i = 0; i < newCount; ++i) {
+            Component c = newChildren.get(i);
+            if (c == null) {
+                throw new IllegalArgumentException("Cannot reconcile null child.");
+            }
+            if (newIndices.put(c, i) != null) {
+                throw new IllegalArgumentException("Component appears more than once in child list: " + c);
+            }
+        }
+
+        // Ensure all added children are acceptable before modifying hierarchy.  Each child is validated against the
+        // retained children and the added children preceding it, such that count-limited containers see the pending
+        // total.
+        List originalChildren = children;
+        List pendingChildren = new ArrayList(Math.max(CHILD_LIST_CAPACITY, newCount));
+        if (children != null) {
+            for (int i = 0; i < children.size(); ++i) {
+                if (newIndices.containsKey(children.get(i))) {
+                    pendingChildren.add(children.get(i));
+                }
+            }
+        }
+        try {
+            children = pendingChildren;
+            visibleChildren = null;
+            for (int i = 0; i < newCount; ++i) {
+                Component c = newChildren.get(i);
+                if (c.parent == this) {
+                    continue;
+                }
+                if (!isValidChild(c) || !c.isValidParent(this)) {
+                    throw new IllegalChildException(this, c);
+                }
+                pendingChildren.add(c);
+            }
+        } finally {
+            children = originalChildren;
+            visibleChildren = null;
+        }
+
+        // Remove children which are not retained.
+        if (children != null) {
+            for (int i = children.size() - 1; i >= 0; --i) {
+                Component c = (Component) children.get(i);
+                if (!newIndices.containsKey(c)) {
+                    remove(c);
+                }
+            }
+        }
+
+        // Find retained children which may stay in place: the longest run of retained children (not necessarily
+        // contiguous) whose order in the new list matches their current order.
+        int retainedCount = children == null ? 0 : children.size();
+        int[] targetIndices = new int[retainedCount];
+        for (int i = 0; i < retainedCount; ++i) {
+            targetIndices[i] = newIndices.get(children.get(i));
+        }
+        boolean[] stationary = findIncreasingSubsequence(targetIndices);
+
+        Set<Component> moving = null;
+        try {
+            // Detach children which must move, leaving them registered and initialized.
+            for (int i = retainedCount - 1; i >= 0; --i) {
+                if (!stationary[i]) {
+                    Component c = (Component) children.get(i);
+                    if (moving == null) {
+                        moving = Collections.newSetFromMap(new IdentityHashMap<>());
+                    }
+                    moving.add(c);
+                    c.flags |= FLAG_MOVING;
+                    remove(c);
+                }
+            }
+
+            // Insert added and moved children at their new positions.
+            for (int i = 0; i < newCount; ++i) {
+                Component c = newChildren.get(i);
+                if (children != null && i < children.size() && children.get(i) == c) {
+                    continue;
+                }
+                add(c, i);
+                if (moving != null && moving.remove(c)) {
+                    c.flags &= ~FLAG_MOVING;
+                }
+            }
+        } finally {
+            if (moving != null) {
+                // Complete removal of moved children which were not re-added due to a failure.
+                Iterator<Component> it = moving.iterator();
+                while (it.hasNext()) {
+                    Component c = it.next();
+                    c.flags &= ~FLAG_MOVING;
+                    if (c.parent == null) {
+                        c.doDispose();
+                        if (applicationInstance != null) {
+                            c.register(null);
+                        }
+                    }
+                }
+            }
+            if (children != null && children.size() == 0) {
+                children = null;
+            }
+        }
+    }
+
+    /**
+     * Determines a longest strictly increasing subsequence of the specified
+     * values.
+     *
+     * @param values the values
+     * @return an array flagging the members of the subsequence
+     */
+    private static boolean[] findIncreasingSubsequence(int[] values) {
+        // tails[k]: index of smallest tail value of an increasing subsequence of length k + 1.
+        int[] tails = new int[values.length];
+        int[] predecessors = new int[values.length];
+        int length = 0;
+        for (int i = 0; i < values.length; ++i) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[tails[mid]] < values[i]) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            predecessors[i] = low == 0 ? -1 : tails[low - 1];
+            tails[low] = i;
+            if (low == length) {
+                ++length;
+            }
+        }
+        boolean[] members = new boolean[values.length];
+        for (int i = length == 0 ? -1 : tails[length - 1]; i != -1; i = predecessors[i]) {
+            members[i] = true;
+        }
+        return members;
+    }
+
     /**
      * Sets the <code>ApplicationInstance</code> to which this component is
      * registered.
@@ -1362,6 +1983,7 @@ public abstract class Component
             }
 
             applicationInstance = newValue;
+            renderStateGeneration = 0;
 
             if (newValue != null) { // registering
                 applicationInstance.registerComponent(this);
@@ -1383,10 +2005,12 @@ public abstract class Component
      * Removes the specified child <code>Component</code> from this
      * <code>Component</code>.
      * <p>
-     * All <code>Component</code> remove operations use this method to remove
+     * All <code>Component</code> remove operations other than
+     * <code>removeAll()</code> use this method to remove
      * <code>Component</code>s. <code>Component</code>s that require
-     * notification of all child removals should override this method (while
-     * ensuring to call the superclass' implementation).
+     * notification of all child removals should override this method and
+     * <code>removeAll()</code> (while ensuring to call the superclass'
+     * implementation).
      *
      * @param c the child <code>Component</code> to remove
      */
@@ -1397,16 +2021,19 @@ public abstract class Component
             return;
         }
 
-        c.doDispose();
+        if ((c.flags & FLAG_MOVING) == 0) {
+            c.doDispose();
 
-        // Deregister child.
-        if (applicationInstance != null) {
-            c.register(null);
+            // Deregister child.
+            if (applicationInstance != null) {
+                c.register(null);
+            }
         }
 
         // Dissolve references between parent and child.
         children.remove(c);
         c.parent = null;
+        visibleChildren = null;
 
         // Notify PropertyChangeListeners of change.
         firePropertyChange(CHILDREN_CHANGED_PROPERTY, c, null);
@@ -1426,16 +2053,47 @@ public abstract class Component
     }
 
     /**
-     * Removes all child <code>Component</code>s.
+     * Removes all child <code>Component</code>s.  The children are disposed
+     * and unregistered in a single pass and a single
+     * <code>CHILDREN_BATCH_CHANGED_PROPERTY</code> event is fired, whose
+     * <code>oldValue</code> is a <code>Component[]</code> of the removed
+     * children.  Registered <code>PropertyChangeListener</code>s of 
+     * <code>CHILDREN_CHANGED_PROPERTY</code> are additionally notified of
+     * each removed child.
+     * <p>
+     * This method does not invoke <code>remove()</code>;
+     * <code>Component</code>s which require notification of all child
+     * removals should override this method as well.
      */
     public void removeAll() {
-        if (children != null) {
-            while (children.size() > 0) {
-                Component c = (Component) children.get(children.size() - 1);
-                remove(c);
-            }
+        if (children == null) {
+            return;
+        }
+        if (children.size() == 0) {
             children = null;
+            return;
         }
+        Component[] removed = (Component[]) children.toArray(new Component[children.size()]);
+
+        for (int i = removed.length - 1; i >= 0; --i) {
+            removed[i].doDispose();
+
+            // Deregister child.
+            if (applicationInstance != null) {
+                removed[i].register(null);
+            }
+        }
+
+        // Dissolve references between parent and children.
+        children = null;
+        visibleChildren = null;
+        for (int i = 0; i < removed.length; ++i) {
+            removed[i].parent = null;
+        }
+
+        // Notify PropertyChangeListeners of change.
+        firePropertyChange(CHILDREN_BATCH_CHANGED_PROPERTY, removed, null);
+        fireChildrenChanged(removed, false);
     }
 
     /**
@@ -1444,8 +2102,8 @@ public abstract class Component
      * @param l the listener to be removed
      */
     public void removePropertyChangeListener(PropertyChangeListener l) {
-        if (propertyChangeSupport != null) {
-            propertyChangeSupport.removePropertyChangeListener(l);
+        if (rareFields != null && rareFields.propertyChangeSupport != null) {
+            rareFields.propertyChangeSupport.removePropertyChangeListener(l);
         }
     }
 
@@ -1457,8 +2115,8 @@ public abstract class Component
      * @param l the listener to be removed
      */
     public void removePropertyChangeListener(String propertyName, PropertyChangeListener l) {
-        if (propertyChangeSupport != null) {
-            propertyChangeSupport.removePropertyChangeListener(propertyName, l);
+        if (rareFields != null && rareFields.propertyChangeSupport != null) {
+            rareFields.propertyChangeSupport.removePropertyChangeListener(propertyName, l);
         }
     }
 
@@ -1472,7 +2130,12 @@ public abstract class Component
      */
     public void set(String propertyName, Object newValue) {
         Object oldValue = localStyle.get(propertyName);
-        localStyle.set(propertyName, newValue);
+        if (localStyle != EmptyLocalStyle.INSTANCE) {
+            localStyle.set(propertyName, newValue);
+        } else if (newValue != null) {
+            localStyle = new MutableStyle();
+            localStyle.set(propertyName, newValue);
+        }
         firePropertyChange(propertyName, oldValue, newValue);
     }
 
@@ -1526,6 +2189,9 @@ public abstract class Component
         boolean oldValue = (flags & FLAG_ENABLED) != 0;
         if (oldValue != newValue) {
             flags ^= FLAG_ENABLED; // Toggle FLAG_ENABLED bit.
+            if (applicationInstance != null) {
+                applicationInstance.invalidateRenderState();
+            }
             firePropertyChange(ENABLED_CHANGED_PROPERTY, oldValue, newValue);
         }
     }
@@ -1548,8 +2214,8 @@ public abstract class Component
      * @param newValue the <code>renderId</code> of the next focusable component
      */
     public void setFocusNextId(String newValue) {
-        String oldValue = focusNextId;
-        focusNextId = newValue;
+        String oldValue = getFocusNextId();
+        getRareFields().focusNextId = newValue;
         firePropertyChange(FOCUS_NEXT_ID_CHANGED_PROPERTY, oldValue, newValue);
     }
 
@@ -1563,8 +2229,8 @@ public abstract class Component
      * component
      */
     public void setFocusPreviousId(String newValue) {
-        String oldValue = focusPreviousId;
-        focusPreviousId = newValue;
+        String oldValue = getFocusPreviousId();
+        getRareFields().focusPreviousId = newValue;
         firePropertyChange(FOCUS_PREVIOUS_ID_CHANGED_PROPERTY, oldValue, newValue);
     }
 
@@ -1592,7 +2258,14 @@ public abstract class Component
      * @param id the new identifier
      */
     public void setId(String id) {
-        this.id = id;
+        String oldValue = getId();
+        if (oldValue == null && id == null) {
+            return;
+        }
+        getRareFields().id = id;
+        if (applicationInstance != null && !(id == null ? oldValue == null : id.equals(oldValue))) {
+            applicationInstance.updateComponentId(this, oldValue, id);
+        }
     }
 
     /**
@@ -1606,6 +2279,12 @@ public abstract class Component
      * @see #getIndex(java.lang.String, int)
      */
     public void setIndex(String propertyName, int propertyIndex, Object newValue) {
+        if (localStyle == EmptyLocalStyle.INSTANCE) {
+            if (newValue == null) {
+                return;
+            }
+            localStyle = new MutableStyle();
+        }
         localStyle.setIndex(propertyName, propertyIndex, newValue);
         firePropertyChange(propertyName, null, null);
     }
@@ -1630,8 +2309,8 @@ public abstract class Component
      * @param newValue the new <code>LayoutDirection</code>.
      */
     public void setLayoutDirection(LayoutDirection newValue) {
-        LayoutDirection oldValue = layoutDirection;
-        layoutDirection = newValue;
+        LayoutDirection oldValue = getLayoutDirection();
+        getRareFields().layoutDirection = newValue;
         firePropertyChange(LAYOUT_DIRECTION_CHANGED_PROPERTY, oldValue, newValue);
     }
 
@@ -1642,8 +2321,8 @@ public abstract class Component
      * @see #getLocale()
      */
     public void setLocale(Locale newValue) {
-        Locale oldValue = locale;
-        locale = newValue;
+        Locale oldValue = getLocale();
+        getRareFields().locale = newValue;
         firePropertyChange(LOCALE_CHANGED_PROPERTY, oldValue, newValue);
     }
 
@@ -1658,7 +2337,7 @@ public abstract class Component
      * @param renderId the new identifier
      */
     public void setRenderId(String renderId) {
-        if (this.renderId != null && this.applicationInstance != null) {
+        if ((getCustomRenderId() != null || generatedRenderId != 0) && applicationInstance != null) {
             throw new IllegalStateException("Cannot set renderId while component is registered.");
         }
         if (renderId != null) {
@@ -1672,7 +2351,12 @@ public abstract class Component
                 }
             }
         }
-        assignRenderId(renderId);
+        if (renderId != null || rareFields != null) {
+            getRareFields().customRenderId = renderId;
+        }
+        storeLastRenderId();
+        generatedRenderId = 0;
+        encodedRenderId = null;
     }
 
     /**
@@ -1684,8 +2368,8 @@ public abstract class Component
      * @see #getStyle()
      */
     public void setStyle(Style newValue) {
-        Style oldValue = sharedStyle;
-        sharedStyle = newValue;
+        Style oldValue = getStyle();
+        getRareFields().sharedStyle = newValue;
         firePropertyChange(STYLE_CHANGED_PROPERTY, oldValue, newValue);
     }
 
@@ -1732,22 +2416,80 @@ public abstract class Component
         boolean oldValue = (flags & FLAG_VISIBLE) != 0;
         if (oldValue != newValue) {
             flags ^= FLAG_VISIBLE; // Toggle FLAG_VISIBLE bit.
+            if (applicationInstance != null) {
+                applicationInstance.invalidateRenderState();
+            }
             firePropertyChange(VISIBLE_CHANGED_PROPERTY, Boolean.valueOf(oldValue), Boolean.valueOf(newValue));
             if (parent != null) {
+                parent.visibleChildren = null;
                 parent.firePropertyChange(CHILD_VISIBLE_CHANGED_PROPERTY, newValue ? null : this, newValue ? this : null);
             }
         }
     }
 
+    /**
+     * Stores a last render id derived from the generated render id, such 
+     * that the generated render id may be changed.
+     */
+    private void storeLastRenderId() {
+        if ((flags & FLAG_LAST_RENDER_ID_GENERATED) != 0) {
+            getRareFields().lastRenderId = getEncodedRenderId();
+            flags &= ~FLAG_LAST_RENDER_ID_GENERATED;
+        }
+    }
+
     /**
      * A life-cycle method invoked before the component is rendered to ensure it
      * is in a valid state. Default implementation is empty. Overriding
      * implementations should ensure to invoke <code>super.validate()</code> out
-     * of convention.
+     * of convention, and should invoke <code>invalidateLayout()</code> when
+     * validation is required.
+     *
+     * @see #invalidateLayout()
      */
     public void validate() {
     }
 
+    /**
+     * Recomputes the cached render enabled/visible flags if they were computed
+     * at a generation other than the specified generation, validating the 
+     * flags of ancestors as required.  The flags are not cached if an ancestor
+     * is not registered to the same <code>ApplicationInstance</code> (as is
+     * the case during registration).
+     *
+     * @param generation the current render state generation of the 
+     *        <code>ApplicationInstance</code>
+     */
+    private void validateRenderState(int generation) {
+        if (renderStateGeneration == generation) {
+            return;
+        }
+        int renderFlags = ((flags & FLAG_ENABLED) != 0 ? FLAG_RENDER_ENABLED : 0) 
+                | ((flags & FLAG_VISIBLE) != 0 ? FLAG_RENDER_VISIBLE : 0);
+        if (parent != null) {
+            if (parent.applicationInstance != applicationInstance) {
+                return;
+            }
+            parent.validateRenderState(generation);
+            if (parent.renderStateGeneration != generation) {
+                return;
+            }
+            renderFlags &= parent.flags;
+        }
+        flags = (flags & ~(FLAG_RENDER_ENABLED | FLAG_RENDER_VISIBLE)) | renderFlags;
+        renderStateGeneration = generation;
+    }
+
+    /**
+     * Clears the validation request flag and invokes the
+     * <code>validate()</code> life-cycle method. This method is invoked by the
+     * <code>ApplicationInstance</code>.
+     */
+    void doValidate() {
+        flags &= ~FLAG_VALIDATION_REQUIRED;
+        validate();
+    }
+
     /**
      * Invoked by the <code>ClientUpdateManager</code> on each component in the
      * hierarchy whose <code>processInput()</code> method will layer be invoked
@@ -1784,23 +2526,14 @@ public abstract class Component
      * <strong>visible</strong> children of this <code>Component</code>
      */
     public final int visibleIndexOf(Component c) {
-        if (!c.isVisible()) {
-            return -1;
-        }
-        if (children == null) {
+        if (c.parent != this || !c.isVisible()) {
             return -1;
         }
-        int visibleIndex = 0;
-        Iterator it = children.iterator();
-        while (it.hasNext()) {
-            Component component = (Component) it.next();
-            if (!component.isVisible()) {
-                continue;
-            }
-            if (component.equals(c)) {
-                return visibleIndex;
+        Component[] visible = getVisibleChildren();
+        for (int i = 0; i < visible.length; ++i) {
+            if (visible[i] == c) {
+                return i;
             }
-            ++visibleIndex;
         }
         return -1;
     }
@@ -41,6 +41,10 @@ import java.util.TreeMap;
  * resetting the shared style of a <code>Component</code>. As such, shared
  * <code>Style</code>s should not be updated once they are in use by
  * <code>Component</code>s, as it will result in undefined behavior.
+ * <p>
+ * Properties are stored as name/value pairs in insertion order.  Styles with
+ * few properties are searched linearly; larger styles are additionally 
+ * indexed by an open-addressed hash table of property name hash codes.
  */
 public class MutableStyle
         implements Style {
@@ -52,6 +56,12 @@ public class MutableStyle
 
     private static final int GROW_RATE = 5 * 2;  // Must be a multiple of 2.
 
+    /**
+     * Maximum <code>length</code> of styles which are searched linearly
+     * rather than by hash index.
+     */
+    private static final int LINEAR_SEARCH_LENGTH = 8 * 2;
+
     private static final Object[] EMPTY = new Object[0];
 
     /**
@@ -160,6 +170,15 @@ public class MutableStyle
     private Object[] data = EMPTY;
     int length = 0; // Number of items * 2;
 
+    /**
+     * Hash index of <code>data</code>, mapping slots derived from property
+     * name hash codes to property positions (<code>data</code> index / 2) 
+     * offset by one, such that zero represents an empty slot.  Null if 
+     * <code>length</code> does not exceed <code>LINEAR_SEARCH_LENGTH</code>
+     * or if the index must be rebuilt.
+     */
+    private transient int[] index;
+
     /**
      * Default constructor.
      */
@@ -190,6 +209,56 @@ public class MutableStyle
         }
     }
 
+    /**
+     * Builds the hash index of all stored properties.
+     */
+    private void buildIndex() {
+        int count = length / 2;
+        index = new int[Integer.highestOneBit(count) * 4];
+        for (int position = 0; position < count; ++position) {
+            indexPosition(position);
+        }
+    }
+
+    /**
+     * Returns the <code>data</code> index of the name of a property.
+     *
+     * @param propertyName the name of the property
+     * @return the index, or -1 if the property is not set
+     */
+    private int find(String propertyName) {
+        if (length > LINEAR_SEARCH_LENGTH) {
+            if (index == null) {
+                buildIndex();
+            }
+            int mask = index.length - 1;
+            int slot = hash(propertyName) & mask;
+            int entry;
+            while ((entry = index[slot]) != 0) {
+                int i = (entry - 1) * 2;
+                if (data[i] == propertyName || propertyName.equals(data[i])) {
+                    return i;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        // Property names are generally constants, test identity before equality.
+        for (int i = 0; i < length; i += 2) {
+            if (data[i] == propertyName) {
+                return i;
+            }
+        }
+        int propertyNameHashCode = propertyName.hashCode();
+        for (int i = 0; i < length; i += 2) {
+            if (propertyNameHashCode == data[i].hashCode() && propertyName.equals(data[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     /**
      * @see nextapp.echo.app.Style#get(java.lang.String)
      */
@@ -246,6 +315,31 @@ public class MutableStyle
         return new PropertyNameIterator();
     }
 
+    /**
+     * Returns the hash index hash code of a property name.
+     *
+     * @param propertyName the property name
+     * @return the hash code
+     */
+    private static int hash(Object propertyName) {
+        int h = propertyName.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Adds the property at the specified position to the hash index.
+     *
+     * @param position the position of the property (<code>data</code> index / 2)
+     */
+    private void indexPosition(int position) {
+        int mask = index.length - 1;
+        int slot = hash(data[position * 2]) & mask;
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = position + 1;
+    }
+
     /**
      * @see nextapp.echo.app.Style#isIndexedPropertySet(java.lang.String, int)
      */
@@ -261,13 +355,7 @@ public class MutableStyle
      * @see nextapp.echo.app.Style#isPropertySet(java.lang.String)
      */
     public boolean isPropertySet(String propertyName) {
-        int propertyNameHashCode = propertyName.hashCode();
-        for (int i = 0; i < length; i += 2) {
-            if (propertyNameHashCode == data[i].hashCode() && propertyName.equals(data[i])) {
-                return true;
-            }
-        }
-        return false;
+        return find(propertyName) != -1;
     }
 
     /**
@@ -290,18 +378,18 @@ public class MutableStyle
      * @param propertyName the name of the property to remove
      */
     public void removeProperty(String propertyName) {
-        int propertyNameHashCode = propertyName.hashCode();
-        for (int i = 0; i < length; i += 2) {
-            if (propertyNameHashCode == data[i].hashCode() && propertyName.equals(data[i])) {
-                data[i] = data[length - 2];
-                data[i + 1] = data[length - 1];
-                data[length - 2] = null;
-                data[length - 1] = null;
-                length -= 2;
-                break;
-            }
+        int i = find(propertyName);
+        if (i == -1) {
+            return;
         }
 
+        // Shift subsequent properties to retain insertion order.
+        System.arraycopy(data, i + 2, data, i, length - i - 2);
+        data[length - 2] = null;
+        data[length - 1] = null;
+        length -= 2;
+        index = null;
+
         if (length == 0) {
             data = EMPTY;
         }
@@ -314,13 +402,8 @@ public class MutableStyle
      * @return the value of the property
      */
     private Object retrieveProperty(String propertyName) {
-        int propertyNameHashCode = propertyName.hashCode();
-        for (int i = 0; i < length; i += 2) {
-            if (propertyNameHashCode == data[i].hashCode() && propertyName.equals(data[i])) {
-                return data[i + 1];
-            }
-        }
-        return null;
+        int i = find(propertyName);
+        return i == -1 ? null : data[i + 1];
     }
 
     /**
@@ -336,35 +419,33 @@ public class MutableStyle
             return;
         }
 
-        if (data == EMPTY) {
-            data = new Object[GROW_RATE];
+        int i = find(propertyName);
+        if (i != -1) {
+            // Found property, overwrite.
+            data[i + 1] = propertyValue;
+            return;
         }
 
-        int propertyNameHashCode = propertyName.hashCode();
-        for (int i = 0; i < data.length; i += 2) {
-            if (data[i] == null) {
-                // Property is not set, space remains to set property.
-                // Add property at end.
-                data[i] = propertyName;
-                data[i + 1] = propertyValue;
-                length += 2;
-                return;
-            }
-            if (propertyNameHashCode == data[i].hashCode() && propertyName.equals(data[i])) {
-                // Found property, overwrite.
-                data[i + 1] = propertyValue;
-                return;
-            }
+        if (length == data.length) {
+            // Array is full: grow array.
+            Object[] newData = new Object[data.length + GROW_RATE];
+            System.arraycopy(data, 0, newData, 0, data.length);
+            data = newData;
         }
 
-        // Array is full: grow array.
-        Object[] newData = new Object[data.length + GROW_RATE];
-        System.arraycopy(data, 0, newData, 0, data.length);
-
-        newData[data.length] = propertyName;
-        newData[data.length + 1] = propertyValue;
+        // Add property at end.
+        data[length] = propertyName;
+        data[length + 1] = propertyValue;
         length += 2;
-        data = newData;
+
+        if (index != null) {
+            if (length > index.length) {
+                // Index would exceed 50% load: rebuild when next required.
+                index = null;
+            } else {
+                indexPosition(length / 2 - 1);
+            }
+        }
     }
 
     /**
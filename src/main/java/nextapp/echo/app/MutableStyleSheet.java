@@ -47,6 +47,12 @@ public class MutableStyleSheet
     private final Map<String, Map<Class, Style>> namedStyleMap = new HashMap<>();
     private final Map<Class, Style> defaultStyleMap = new HashMap<>();
 
+    /**
+     * The number of modifications made to the styles of this
+     * <code>StyleSheet</code>, allowing cached styles to be invalidated.
+     */
+    private transient int modificationCount;
+
     /**
      * Adds a <code>Style</code> to the <code>StyleSheet</code>.
      *
@@ -66,6 +72,7 @@ public class MutableStyleSheet
             }
             styleMap.put(componentClass, style);
         }
+        ++modificationCount;
     }
 
     /**
@@ -78,6 +85,7 @@ public class MutableStyleSheet
     public void addStyleSheet(MutableStyleSheet styleSheet) {
         namedStyleMap.putAll(styleSheet.namedStyleMap);
         defaultStyleMap.putAll(styleSheet.defaultStyleMap);
+        ++modificationCount;
     }
 
     /**
@@ -93,6 +101,17 @@ public class MutableStyleSheet
         }
     }
 
+    /**
+     * Returns the number of modifications made to the styles of this
+     * <code>StyleSheet</code>.  Styles resolved from the 
+     * <code>StyleSheet</code> remain valid while this value is unchanged.
+     *
+     * @return the modification count
+     */
+    int getModificationCount() {
+        return modificationCount;
+    }
+
     /**
      * @see nextapp.echo.app.StyleSheet#getStyle(java.lang.String,
      * java.lang.Class, boolean)
@@ -0,0 +1,268 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.app;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Registry of the components of an <code>ApplicationInstance</code> which 
+ * have generated render ids, keyed by the primitive value of the id.
+ * <p>
+ * Generated render ids are positive <code>long</code> values, rendered as 
+ * <code>String</code>s only on demand by way of <code>encode()</code>.  The
+ * encoding begins with a decimal digit (the value modulo ten), followed by 
+ * the remaining value in base 63 (least significant digit first) using the 
+ * characters [0-9,A-Z,a-z,_].  Encoded ids are thus valid render ids, but can
+ * never collide with custom render ids, which must begin with a letter.  
+ * Values below ten encode to the same single digit as their decimal 
+ * representation.
+ * <p>
+ * Components are stored in an open-addressed (linear probing) hash table.
+ */
+final class RenderIdMap 
+implements Serializable {
+    
+    /** Serial Version UID. */
+    private static final long serialVersionUID = 20070101L;
+    
+    /** Characters used to encode render ids, the first ten being decimal digits. */
+    private static final char[] ALPHABET 
+            = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz_".toCharArray();
+    
+    /** Mapping from characters to their values in <code>ALPHABET</code>, or -1. */
+    private static final byte[] ALPHABET_VALUES = new byte[128];
+    static {
+        Arrays.fill(ALPHABET_VALUES, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; ++i) {
+            ALPHABET_VALUES[ALPHABET[i]] = (byte) i;
+        }
+    }
+    
+    private static final int INITIAL_CAPACITY = 64;
+    
+    /**
+     * Returns the generated render id value represented by a 
+     * <code>String</code>.
+     * 
+     * @param renderId the <code>String</code> render id
+     * @return the generated render id value, or 0 if the <code>String</code>
+     *         is not the encoding of a generated render id
+     */
+    static long decode(String renderId) {
+        int length = renderId.length();
+        if (length == 0 || length > 12) {
+            return 0;
+        }
+        char first = renderId.charAt(0);
+        if (first < '0' || first > '9') {
+            return 0;
+        }
+        if (length > 1 && renderId.charAt(length - 1) == '0') {
+            // Not canonical: trailing zero digit.
+            return 0;
+        }
+        long quotient = 0;
+        for (int i = length - 1; i > 0; --i) {
+            char ch = renderId.charAt(i);
+            int value = ch < 128 ? ALPHABET_VALUES[ch] : -1;
+            if (value == -1 || quotient > (Long.MAX_VALUE - value) / ALPHABET.length) {
+                return 0;
+            }
+            quotient = quotient * ALPHABET.length + value;
+        }
+        if (quotient > (Long.MAX_VALUE - (first - '0')) / 10) {
+            return 0;
+        }
+        return quotient * 10 + (first - '0');
+    }
+    
+    /**
+     * Returns the <code>String</code> encoding of a generated render id.
+     * 
+     * @param value the generated render id value (must be positive)
+     * @return the encoded render id
+     */
+    static String encode(long value) {
+        char[] chars = new char[12];
+        int length = 0;
+        chars[length++] = ALPHABET[(int) (value % 10)];
+        for (long quotient = value / 10; quotient > 0; quotient /= ALPHABET.length) {
+            chars[length++] = ALPHABET[(int) (quotient % ALPHABET.length)];
+        }
+        return new String(chars, 0, length);
+    }
+    
+    private long[] keys;
+    private Component[] values;
+    private int size;
+    
+    /**
+     * Creates a new <code>RenderIdMap</code>.
+     */
+    RenderIdMap() {
+        super();
+        keys = new long[INITIAL_CAPACITY];
+        values = new Component[INITIAL_CAPACITY];
+    }
+    
+    /**
+     * Determines whether a component is registered with the specified 
+     * render id.
+     * 
+     * @param renderId the generated render id value
+     * @return true if a component is registered
+     */
+    boolean containsKey(long renderId) {
+        return get(renderId) != null;
+    }
+    
+    /**
+     * Returns the component registered with the specified render id.
+     * 
+     * @param renderId the generated render id value
+     * @return the component, or null if none is registered
+     */
+    Component get(long renderId) {
+        int mask = keys.length - 1;
+        for (int slot = slot(renderId, mask); values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == renderId) {
+                return values[slot];
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Registers a component with the specified render id, replacing any 
+     * component currently registered with it.
+     * 
+     * @param renderId the generated render id value
+     * @param component the component
+     */
+    void put(long renderId, Component component) {
+        if ((size + 1) * 4 > keys.length * 3) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int slot = slot(renderId, mask);
+        while (values[slot] != null) {
+            if (keys[slot] == renderId) {
+                values[slot] = component;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = renderId;
+        values[slot] = component;
+        ++size;
+    }
+    
+    /**
+     * Unregisters the component with the specified render id.
+     * Subsequent entries of the probe sequence are shifted back, such that 
+     * no deletion markers are required.
+     * 
+     * @param renderId the generated render id value
+     */
+    void remove(long renderId) {
+        int mask = keys.length - 1;
+        int slot = slot(renderId, mask);
+        while (values[slot] != null && keys[slot] != renderId) {
+            slot = (slot + 1) & mask;
+        }
+        if (values[slot] == null) {
+            return;
+        }
+        int next = slot;
+        for (;;) {
+            next = (next + 1) & mask;
+            if (values[next] == null) {
+                break;
+            }
+            int home = slot(keys[next], mask);
+            // Shift the entry back if its home slot is not cyclically within (slot, next].
+            if ((next > slot && (home <= slot || home > next)) || (next < slot && (home <= slot && home > next))) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                slot = next;
+            }
+        }
+        keys[slot] = 0;
+        values[slot] = null;
+        --size;
+        if (size * 8 < keys.length && keys.length > INITIAL_CAPACITY) {
+            resize(keys.length / 2);
+        }
+    }
+    
+    /**
+     * Rehashes all entries into tables of the specified capacity.
+     * 
+     * @param capacity the new capacity (a power of two)
+     */
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Component[] oldValues = values;
+        keys = new long[capacity];
+        values = new Component[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldValues[i] != null) {
+                int slot = slot(oldKeys[i], mask);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+    
+    /**
+     * Returns the number of registered components.
+     * 
+     * @return the number of components
+     */
+    int size() {
+        return size;
+    }
+    
+    /**
+     * Returns the first slot to probe for the specified render id.
+     * 
+     * @param renderId the generated render id value
+     * @param mask the table capacity less one
+     * @return the slot
+     */
+    private static int slot(long renderId, int mask) {
+        return (int) ((renderId * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+}
@@ -31,8 +31,13 @@ package nextapp.echo.app;
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.EventListener;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import nextapp.echo.app.event.ActionEvent;
@@ -48,6 +53,7 @@ import nextapp.echo.app.list.ListSelectionModel;
 import nextapp.echo.app.table.DefaultTableCellRenderer;
 import nextapp.echo.app.table.DefaultTableColumnModel;
 import nextapp.echo.app.table.DefaultTableModel;
+import nextapp.echo.app.table.RecyclingTableCellRenderer;
 import nextapp.echo.app.table.TableCellRenderer;
 import nextapp.echo.app.table.TableColumn;
 import nextapp.echo.app.table.TableColumnModel;
@@ -58,6 +64,11 @@ import nextapp.echo.app.table.TableModel;
  * 
  * This component may contain child components, but they will be added and removed internally.  
  * Invoking <code>add()</code>/<code>remove()</code> directly on this component is not allowed.
+ * <p>
+ * A <code>Table</code> may be <em>virtualized</em>, in which case cell components are only created for the rows within
+ * the client-reported viewport plus a band of overscan rows on either side.  The children then represent the rows
+ * starting at <code>getRenderedFirstRow()</code>; the rendering peer is responsible for representing the remaining
+ * rows of the model with spacers.  Row indices used by the selection model remain model row indices.
  *
  * @see nextapp.echo.app.table
  */
@@ -96,9 +107,32 @@ public class Table extends BorderedComponent {
     public static final String MODEL_CHANGED_PROPERTY = "model";
     public static final String SELECTION_CHANGED_PROPERTY = "selection";
     public static final String SELECTION_MODEL_CHANGED_PROPERTY = "selectionModel";
+    public static final String OVERSCAN_ROW_COUNT_CHANGED_PROPERTY = "overscanRowCount";
+    public static final String VIEWPORT_CHANGED_PROPERTY = "viewport";
+    public static final String VIRTUALIZED_CHANGED_PROPERTY = "virtualized";
     
     public static final int HEADER_ROW = -1;
     
+    /**
+     * Default number of rows beyond each edge of the viewport rendered by a virtualized table.
+     */
+    public static final int DEFAULT_OVERSCAN_ROW_COUNT = 20;
+    
+    /**
+     * Default number of viewport rows assumed by a virtualized table before the client reports its viewport.
+     */
+    public static final int DEFAULT_VIEWPORT_ROW_COUNT = 50;
+    
+    /**
+     * Maximum number of viewport rows accepted from client input.
+     */
+    public static final int MAXIMUM_VIEWPORT_ROW_COUNT = 1000;
+    
+    /**
+     * Maximum number of recyclable cell components of a single renderer and class retained between renderings.
+     */
+    private static final int MAXIMUM_POOLED_CELL_COUNT = 100;
+    
     private boolean autoCreateColumnsFromModel;
     private boolean headerVisible = true;
     private TableModel model;
@@ -110,6 +144,32 @@ public class Table extends BorderedComponent {
     private boolean suppressChangeNotifications;
     private boolean rendering = false;
     
+    /**
+     * The index of the first model row represented by the rendered child components.
+     */
+    private int renderedFirstRow;
+    
+    /**
+     * The number of model rows represented by the rendered child components.
+     */
+    private int renderedRowCount;
+    
+    private boolean virtualized;
+    private int overscanRowCount = DEFAULT_OVERSCAN_ROW_COUNT;
+    private int viewportFirstRow;
+    private int viewportRowCount = DEFAULT_VIEWPORT_ROW_COUNT;
+    
+    /**
+     * Mapping between child cell components rendered by <code>RecyclingTableCellRenderer</code>s and their renderers.
+     * Lazily created.
+     */
+    private transient Map<Component, RecyclingTableCellRenderer> recyclableCells;
+    
+    /**
+     * Pool of removed recyclable cell components, keyed by renderer and then by component class.  Lazily created.
+     */
+    private transient Map<RecyclingTableCellRenderer, Map<Class, List<Component>>> cellPool;
+    
     /**
      * Listener to monitor changes to model.
      */
@@ -123,7 +183,9 @@ public class Table extends BorderedComponent {
          */
         @Override
         public void tableChanged(TableModelEvent e) {
-            invalidate();
+            if (!valid || !renderModelChange(e)) {
+                invalidate();
+            }
             if ((e == null || e.getType() == TableModelEvent.STRUCTURE_CHANGED) && isAutoCreateColumnsFromModel()) {
                 createDefaultColumnsFromModel();
             }
@@ -260,6 +322,17 @@ public class Table extends BorderedComponent {
         super.add(c, n);
     }
 
+    /**
+     * @see nextapp.echo.app.Component#addAll(java.util.Collection)
+     */
+    @Override
+    public void addAll(Collection<? extends Component> components) throws IllegalChildException {
+        if (!rendering) {
+            throw new IllegalStateException("Programmatic addition or removal of Table children is prohibited.");
+        }
+        super.addAll(components);
+    }
+
     /**
      * Adds an <code>ActionListener</code> to the <code>Table</code>.
      * <code>ActionListener</code>s will be invoked when the user
@@ -293,6 +366,21 @@ public class Table extends BorderedComponent {
         }
     }
     
+    /**
+     * Adds a rendered cell component as a child.
+     * 
+     * @param c the cell component
+     * @param n the child index, or -1 to add the component at the end
+     */
+    private void addCell(Component c, int n) {
+        try {
+            rendering = true;
+            add(c, n);
+        } finally {
+            rendering = false;
+        }
+    }
+    
     /**
      * Re-renders changed rows.
      */
@@ -306,22 +394,19 @@ public class Table extends BorderedComponent {
         int rowCount = model.getRowCount();
         int columnCount = columnModel.getColumnCount();
         
+        int firstRow = 0;
+        int endRow = rowCount;
+        if (virtualized) {
+            firstRow = Math.min(Math.max(viewportFirstRow - overscanRowCount, 0), rowCount);
+            endRow = Math.max(Math.min(viewportFirstRow + viewportRowCount + overscanRowCount, rowCount), firstRow);
+        }
+        
         TableColumn[] tableColumns = new TableColumn[columnCount];
         TableCellRenderer[] columnRenderers = new TableCellRenderer[columnCount];
         
         for (int columnIndex = 0; columnIndex < columnCount; ++columnIndex) {
             tableColumns[columnIndex] = columnModel.getColumn(columnIndex);
-            
-            TableCellRenderer renderer = tableColumns[columnIndex].getCellRenderer();
-            if (renderer == null) {
-                Class columnClass = model.getColumnClass(tableColumns[columnIndex].getModelIndex());
-                renderer = getDefaultRenderer(columnClass);
-                if (renderer == null) {
-                    renderer = DEFAULT_TABLE_CELL_RENDERER;
-                }
-            }
-            columnRenderers[columnIndex] = renderer;
-
+            columnRenderers[columnIndex] = getColumnRenderer(tableColumns[columnIndex]);
         }
 
         if (isHeaderVisible()) {
@@ -338,38 +423,20 @@ public class Table extends BorderedComponent {
                         headerRenderer = DEFAULT_TABLE_CELL_RENDERER;
                     }
                 }
-                Component renderedComponent 
-                        = headerRenderer.getTableCellRendererComponent(this, headerValue, modelColumnIndex, HEADER_ROW);
-                if (renderedComponent == null || !renderedComponent.isVisible()) {
-                    renderedComponent = new Label();
-                }
-                
-                try {
-                    rendering = true;
-                    add(renderedComponent);
-                } finally {
-                    rendering = false;
-                }
+                addCell(renderCell(headerRenderer, headerValue, modelColumnIndex, HEADER_ROW), -1);
             }
         }
         
-        for (int rowIndex = 0; rowIndex < rowCount; ++rowIndex) {
+        for (int rowIndex = firstRow; rowIndex < endRow; ++rowIndex) {
             for (int columnIndex = 0; columnIndex < columnCount; ++columnIndex) {
                 int modelColumnIndex = tableColumns[columnIndex].getModelIndex();
                 Object modelValue = model.getValueAt(modelColumnIndex, rowIndex);
-                Component renderedComponent 
-                        = columnRenderers[columnIndex].getTableCellRendererComponent(this, modelValue, modelColumnIndex, rowIndex);
-                if (renderedComponent == null || !renderedComponent.isVisible()) {
-                    renderedComponent = new Label();
-                }
-                try {
-                    rendering = true;
-                    add(renderedComponent);
-                } finally {
-                    rendering = false;
-                }
+                addCell(renderCell(columnRenderers[columnIndex], modelValue, modelColumnIndex, rowIndex), -1);
             }
         }
+        renderedFirstRow = firstRow;
+        renderedRowCount = endRow - firstRow;
+        trimCellPool();
     }
     
     /**
@@ -399,6 +466,26 @@ public class Table extends BorderedComponent {
         return columnModel;
     }
     
+    /**
+     * Returns the <code>TableCellRenderer</code> used to render the cells of
+     * a column: the column's own renderer, the default renderer for the 
+     * column's class, or <code>DEFAULT_TABLE_CELL_RENDERER</code>.
+     * 
+     * @param tableColumn the column
+     * @return the <code>TableCellRenderer</code>
+     */
+    private TableCellRenderer getColumnRenderer(TableColumn tableColumn) {
+        TableCellRenderer renderer = tableColumn.getCellRenderer();
+        if (renderer == null) {
+            Class columnClass = model.getColumnClass(tableColumn.getModelIndex());
+            renderer = getDefaultRenderer(columnClass);
+            if (renderer == null) {
+                renderer = DEFAULT_TABLE_CELL_RENDERER;
+            }
+        }
+        return renderer;
+    }
+    
     /**
      * Returns the default <code>TableCellRenderer</code> used to render
      * header cells.  The default header renderer will be used in the event 
@@ -442,6 +529,36 @@ public class Table extends BorderedComponent {
         return model;
     }
     
+    /**
+     * Returns the number of rows rendered beyond each edge of the viewport
+     * when the table is virtualized.
+     * 
+     * @return the overscan row count
+     */
+    public int getOverscanRowCount() {
+        return overscanRowCount;
+    }
+    
+    /**
+     * Returns the index of the model row represented by the first rendered
+     * (non-header) row of child components.  This value is always 0 unless 
+     * the table is virtualized.
+     * 
+     * @return the first rendered row index
+     */
+    public int getRenderedFirstRow() {
+        return renderedFirstRow;
+    }
+    
+    /**
+     * Returns the number of model rows represented by child components.
+     * 
+     * @return the rendered row count
+     */
+    public int getRenderedRowCount() {
+        return renderedRowCount;
+    }
+    
     /**
      * Return the rollover background color displayed when the mouse is within
      * the bounds of a row.
@@ -527,6 +644,24 @@ public class Table extends BorderedComponent {
         return selectionModel;
     }
     
+    /**
+     * Returns the index of the first model row within the viewport.
+     * 
+     * @return the first viewport row index
+     */
+    public int getViewportFirstRow() {
+        return viewportFirstRow;
+    }
+    
+    /**
+     * Returns the number of rows within the viewport.
+     * 
+     * @return the viewport row count
+     */
+    public int getViewportRowCount() {
+        return viewportRowCount;
+    }
+    
     /**
      * Returns the overall width of the grid.
      * This property supports <code>Extent</code>s with
@@ -552,6 +687,7 @@ public class Table extends BorderedComponent {
      */
     protected void invalidate() {
         valid = false;
+        invalidateLayout();
     }
     
     /**
@@ -578,6 +714,28 @@ public class Table extends BorderedComponent {
         return headerVisible;
     }
     
+    /**
+     * Determines if the rows of the viewport are represented by the rendered
+     * child components.
+     * 
+     * @return true if the viewport is rendered
+     */
+    private boolean isViewportRendered() {
+        int endRow = Math.min(viewportFirstRow + viewportRowCount, model.getRowCount());
+        int firstRow = Math.min(viewportFirstRow, endRow);
+        return firstRow >= renderedFirstRow && endRow <= renderedFirstRow + renderedRowCount;
+    }
+    
+    /**
+     * Determines if the table is virtualized, i.e., whether cell components
+     * are only rendered for rows within and near the viewport.
+     * 
+     * @return true if the table is virtualized
+     */
+    public boolean isVirtualized() {
+        return virtualized;
+    }
+    
     /**
      * Determines if rollover effects are enabled.
      * 
@@ -607,6 +765,14 @@ public class Table extends BorderedComponent {
         super.processInput(inputName, inputValue);
         if (inputName.equals(SELECTION_CHANGED_PROPERTY)) {
             setSelectedIndices((int[]) inputValue);
+        } else if (VIEWPORT_CHANGED_PROPERTY.equals(inputName)) {
+            int[] viewport = (int[]) inputValue;
+            if (viewport.length == 2) {
+                int firstRow = Math.max(viewport[0], 0);
+                int rowCount = Math.min(Math.max(viewport[1], 0), MAXIMUM_VIEWPORT_ROW_COUNT);
+                // Report an unaltered client value as-is, such that it is recognized as already synchronized.
+                updateViewport(firstRow, rowCount, firstRow == viewport[0] && rowCount == viewport[1] ? viewport : null);
+            }
         } else if (INPUT_ACTION.equals(inputName)) {
             fireActionEvent();
         }
@@ -621,6 +787,78 @@ public class Table extends BorderedComponent {
             throw new IllegalStateException("Programmatic addition or removal of Table children is prohibited.");
         }
         super.remove(c);
+        recycleCell(c);
+    }
+
+    /**
+     * @see nextapp.echo.app.Component#removeAll()
+     */
+    @Override
+    public void removeAll() {
+        if (!rendering) {
+            throw new IllegalStateException("Programmatic addition or removal of Table children is prohibited.");
+        }
+        Component[] removed = getComponents();
+        super.removeAll();
+        for (int i = 0; i < removed.length; ++i) {
+            recycleCell(removed[i]);
+        }
+    }
+    
+    /**
+     * Reconfigures a rendered cell component in place to render a new value,
+     * if it was rendered by the specified <code>RecyclingTableCellRenderer</code>
+     * and the value is rendered with a component of the same class.
+     * 
+     * @param renderer the <code>TableCellRenderer</code>
+     * @param cell the rendered cell component
+     * @param value the new value to render
+     * @param column the model column index
+     * @param row the row index
+     * @return true if the cell was reconfigured and remains visible, false 
+     *         if the cell must be replaced
+     */
+    private boolean reconfigureCell(TableCellRenderer renderer, Component cell, Object value, int column, int row) {
+        if (!(renderer instanceof RecyclingTableCellRenderer) || recyclableCells == null 
+                || recyclableCells.get(cell) != renderer) {
+            return false;
+        }
+        RecyclingTableCellRenderer recyclingRenderer = (RecyclingTableCellRenderer) renderer;
+        if (recyclingRenderer.getTableCellRendererComponentClass(this, value, column, row) != cell.getClass()) {
+            return false;
+        }
+        recyclingRenderer.reconfigureTableCellRendererComponent(this, cell, value, column, row);
+        return cell.isVisible();
+    }
+    
+    /**
+     * Returns a removed cell component to the pool if it was rendered by a
+     * <code>RecyclingTableCellRenderer</code>.
+     * 
+     * @param c the removed cell component
+     */
+    private void recycleCell(Component c) {
+        if (recyclableCells == null) {
+            return;
+        }
+        RecyclingTableCellRenderer renderer = recyclableCells.remove(c);
+        if (renderer == null) {
+            return;
+        }
+        if (cellPool == null) {
+            cellPool = new IdentityHashMap<>();
+        }
+        Map<Class, List<Component>> rendererPool = cellPool.get(renderer);
+        if (rendererPool == null) {
+            rendererPool = new HashMap<>();
+            cellPool.put(renderer, rendererPool);
+        }
+        List<Component> pooledCells = rendererPool.get(c.getClass());
+        if (pooledCells == null) {
+            pooledCells = new ArrayList<>();
+            rendererPool.put(c.getClass(), pooledCells);
+        }
+        pooledCells.add(c);
     }
 
     /**
@@ -640,6 +878,194 @@ public class Table extends BorderedComponent {
         firePropertyChange(ACTION_LISTENERS_CHANGED_PROPERTY, l, null);
     }
     
+    /**
+     * Removes and returns a pooled cell component.
+     * 
+     * @param renderer the renderer which rendered the component
+     * @param componentClass the component class
+     * @return the pooled component, or null if none is available
+     */
+    private Component takePooledCell(RecyclingTableCellRenderer renderer, Class componentClass) {
+        if (cellPool == null) {
+            return null;
+        }
+        Map<Class, List<Component>> rendererPool = cellPool.get(renderer);
+        if (rendererPool == null) {
+            return null;
+        }
+        List<Component> pooledCells = rendererPool.get(componentClass);
+        if (pooledCells == null || pooledCells.isEmpty()) {
+            return null;
+        }
+        return pooledCells.remove(pooledCells.size() - 1);
+    }
+    
+    /**
+     * Discards pooled cell components in excess of 
+     * <code>MAXIMUM_POOLED_CELL_COUNT</code> per renderer and class.
+     */
+    private void trimCellPool() {
+        if (cellPool == null) {
+            return;
+        }
+        Iterator<Map<Class, List<Component>>> rendererPoolIt = cellPool.values().iterator();
+        while (rendererPoolIt.hasNext()) {
+            Iterator<List<Component>> pooledCellsIt = rendererPoolIt.next().values().iterator();
+            while (pooledCellsIt.hasNext()) {
+                List<Component> pooledCells = pooledCellsIt.next();
+                if (pooledCells.size() > MAXIMUM_POOLED_CELL_COUNT) {
+                    pooledCells.subList(MAXIMUM_POOLED_CELL_COUNT, pooledCells.size()).clear();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Renders a single cell, substituting an empty <code>Label</code> if
+     * the renderer does not provide a visible component.
+     * 
+     * @param renderer the <code>TableCellRenderer</code>
+     * @param value the value to render
+     * @param column the model column index
+     * @param row the row index, or <code>HEADER_ROW</code>
+     * @return the rendered component
+     */
+    private Component renderCell(TableCellRenderer renderer, Object value, int column, int row) {
+        Component renderedComponent = null;
+        if (renderer instanceof RecyclingTableCellRenderer) {
+            RecyclingTableCellRenderer recyclingRenderer = (RecyclingTableCellRenderer) renderer;
+            Class componentClass = recyclingRenderer.getTableCellRendererComponentClass(this, value, column, row);
+            if (componentClass != null) {
+                renderedComponent = takePooledCell(recyclingRenderer, componentClass);
+                if (renderedComponent != null) {
+                    recyclingRenderer.reconfigureTableCellRendererComponent(this, renderedComponent, value, column, row);
+                } else {
+                    renderedComponent = renderer.getTableCellRendererComponent(this, value, column, row);
+                }
+                if (renderedComponent != null && renderedComponent.isVisible()) {
+                    if (recyclableCells == null) {
+                        recyclableCells = new IdentityHashMap<>();
+                    }
+                    recyclableCells.put(renderedComponent, recyclingRenderer);
+                    return renderedComponent;
+                }
+            }
+        }
+        if (renderedComponent == null) {
+            renderedComponent = renderer.getTableCellRendererComponent(this, value, column, row);
+        }
+        if (renderedComponent == null || !renderedComponent.isVisible()) {
+            renderedComponent = new Label();
+        }
+        return renderedComponent;
+    }
+    
+    /**
+     * Updates the rendered cells of a valid table in response to a 
+     * row insertion, deletion or update, such that only the affected cell
+     * components are replaced.
+     * 
+     * @param e the <code>TableModelEvent</code> describing the change
+     * @return true if the change was rendered, false if the table must 
+     *         instead be fully re-rendered
+     */
+    private boolean renderModelChange(TableModelEvent e) {
+        if (e == null) {
+            return false;
+        }
+        int firstRow = e.getFirstRow();
+        int lastRow = e.getLastRow();
+        if (firstRow < 0 || lastRow < firstRow) {
+            return false;
+        }
+        int rowCount = model.getRowCount();
+        int columnCount = columnModel.getColumnCount();
+        int headerCount = isHeaderVisible() ? columnCount : 0;
+        if (getComponentCount() != headerCount + renderedRowCount * columnCount) {
+            return false;
+        }
+        
+        switch (e.getType()) {
+        case TableModelEvent.INSERT:
+            if (virtualized) {
+                // Re-render viewport band, as rows are shifted relative to it.
+                return false;
+            }
+            if (firstRow > renderedRowCount || rowCount != renderedRowCount + (lastRow - firstRow + 1)) {
+                return false;
+            }
+            for (int rowIndex = firstRow; rowIndex <= lastRow; ++rowIndex) {
+                int childIndex = headerCount + rowIndex * columnCount;
+                for (int columnIndex = 0; columnIndex < columnCount; ++columnIndex) {
+                    int modelColumnIndex = columnModel.getColumn(columnIndex).getModelIndex();
+                    TableCellRenderer renderer = getColumnRenderer(columnModel.getColumn(columnIndex));
+                    addCell(renderCell(renderer, model.getValueAt(modelColumnIndex, rowIndex), modelColumnIndex, rowIndex),
+                            childIndex + columnIndex);
+                }
+            }
+            renderedRowCount = rowCount;
+            return true;
+        case TableModelEvent.DELETE:
+            if (virtualized) {
+                // Re-render viewport band, as rows are shifted relative to it.
+                return false;
+            }
+            if (lastRow >= renderedRowCount || rowCount != renderedRowCount - (lastRow - firstRow + 1)) {
+                return false;
+            }
+            try {
+                rendering = true;
+                // Remove from the last affected cell backwards to avoid shifting cells still to be removed.
+                for (int childIndex = headerCount + (lastRow + 1) * columnCount - 1; 
+                        childIndex >= headerCount + firstRow * columnCount; --childIndex) {
+                    remove(childIndex);
+                }
+            } finally {
+                rendering = false;
+            }
+            renderedRowCount = rowCount;
+            trimCellPool();
+            return true;
+        case TableModelEvent.UPDATE:
+            if (lastRow >= rowCount || renderedFirstRow + renderedRowCount > rowCount
+                    || (!virtualized && rowCount != renderedRowCount)) {
+                return false;
+            }
+            // Only rows within the rendered range have components to be replaced.
+            firstRow = Math.max(firstRow, renderedFirstRow);
+            lastRow = Math.min(lastRow, renderedFirstRow + renderedRowCount - 1);
+            for (int columnIndex = 0; columnIndex < columnCount; ++columnIndex) {
+                TableColumn tableColumn = columnModel.getColumn(columnIndex);
+                int modelColumnIndex = tableColumn.getModelIndex();
+                if (e.getColumn() != TableModelEvent.ALL_COLUMNS && e.getColumn() != modelColumnIndex) {
+                    continue;
+                }
+                TableCellRenderer renderer = getColumnRenderer(tableColumn);
+                for (int rowIndex = firstRow; rowIndex <= lastRow; ++rowIndex) {
+                    int childIndex = headerCount + (rowIndex - renderedFirstRow) * columnCount + columnIndex;
+                    Component cell = getComponent(childIndex);
+                    Object value = model.getValueAt(modelColumnIndex, rowIndex);
+                    if (reconfigureCell(renderer, cell, value, modelColumnIndex, rowIndex)) {
+                        continue;
+                    }
+                    Component renderedComponent = renderCell(renderer, value, modelColumnIndex, rowIndex);
+                    if (renderedComponent != cell) {
+                        try {
+                            rendering = true;
+                            remove(childIndex);
+                        } finally {
+                            rendering = false;
+                        }
+                        addCell(renderedComponent, childIndex);
+                    }
+                }
+            }
+            return true;
+        default:
+            return false;
+        }
+    }
+    
     /**
      * Sets the action command which will be provided in
      * <code>ActionEvent</code>s fired by this 
@@ -772,6 +1198,24 @@ public class Table extends BorderedComponent {
         firePropertyChange(MODEL_CHANGED_PROPERTY, oldValue, newValue);
     }
     
+    /**
+     * Sets the number of rows rendered beyond each edge of the viewport
+     * when the table is virtualized.
+     * 
+     * @param newValue the new overscan row count (may not be negative)
+     */
+    public void setOverscanRowCount(int newValue) {
+        if (newValue < 0) {
+            throw new IllegalArgumentException("Overscan row count may not be negative.");
+        }
+        if (virtualized) {
+            invalidate();
+        }
+        int oldValue = overscanRowCount;
+        overscanRowCount = newValue;
+        firePropertyChange(OVERSCAN_ROW_COUNT_CHANGED_PROPERTY, oldValue, newValue);
+    }
+    
     /**
      * Sets the rollover background color displayed when the mouse is within
      * the bounds of a row.
@@ -905,6 +1349,36 @@ public class Table extends BorderedComponent {
         firePropertyChange(SELECTION_MODEL_CHANGED_PROPERTY, oldValue, newValue);
     }
     
+    /**
+     * Sets the range of model rows visible on the client.  This method is
+     * invoked in response to client input, but may also be used to scroll
+     * a virtualized table programmatically.  A virtualized table is 
+     * re-rendered only if the new viewport extends beyond the rendered rows.
+     * 
+     * @param firstRow the index of the first visible row
+     * @param rowCount the number of visible rows
+     */
+    public void setViewport(int firstRow, int rowCount) {
+        if (firstRow < 0 || rowCount < 0) {
+            throw new IllegalArgumentException("Invalid viewport: " + firstRow + ", " + rowCount);
+        }
+        updateViewport(firstRow, rowCount, null);
+    }
+    
+    /**
+     * Sets whether the table is virtualized, i.e., whether cell components
+     * are only rendered for rows within and near the viewport reported by
+     * the client.
+     * 
+     * @param newValue true to virtualize the table
+     */
+    public void setVirtualized(boolean newValue) {
+        invalidate();
+        boolean oldValue = virtualized;
+        virtualized = newValue;
+        firePropertyChange(VIRTUALIZED_CHANGED_PROPERTY, oldValue, newValue);
+    }
+    
     /**
      * Sets the overall width of the grid.
      * This property supports <code>Extent</code>s with
@@ -916,6 +1390,29 @@ public class Table extends BorderedComponent {
         set(PROPERTY_WIDTH, newValue);
     }
     
+    /**
+     * Updates the range of model rows visible on the client, firing a
+     * <code>VIEWPORT_CHANGED_PROPERTY</code> event if it has changed.
+     * 
+     * @param firstRow the index of the first visible row
+     * @param rowCount the number of visible rows
+     * @param newValue the <code>int[]</code> to report as the new property
+     *        value, or null to create one; client input values are reported
+     *        unaltered such that the update is not echoed to the client
+     */
+    private void updateViewport(int firstRow, int rowCount, int[] newValue) {
+        if (firstRow == viewportFirstRow && rowCount == viewportRowCount) {
+            return;
+        }
+        int[] oldValue = new int[] { viewportFirstRow, viewportRowCount };
+        viewportFirstRow = firstRow;
+        viewportRowCount = rowCount;
+        if (virtualized && !isViewportRendered()) {
+            invalidate();
+        }
+        firePropertyChange(VIEWPORT_CHANGED_PROPERTY, oldValue, newValue == null ? new int[] { firstRow, rowCount } : newValue);
+    }
+    
     /**
      * @see nextapp.echo.app.Component#validate()
      */
@@ -0,0 +1,309 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.app;
+
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A queue of tasks to be run by the user interface thread of an 
+ * <code>ApplicationInstance</code>, represented to applications by a 
+ * <code>TaskQueueHandle</code>.
+ * <p>
+ * Tasks may be added by any number of threads concurrently without blocking.
+ * Tasks are removed only by the user interface thread.
+ * <p>
+ * Tasks may be added with a coalescing key: while a task with the same key
+ * is queued, it is replaced by the newly added task rather than a second
+ * task being appended.  The replacement retains the queue position of the
+ * original.
+ */
+final class TaskQueue 
+implements TaskQueueHandle {
+
+    /** Serial Version UID. */
+    private static final long serialVersionUID = 20070101L;
+    
+    /**
+     * Queue entry for a task added with a coalescing key, holding the most
+     * recently added task for that key.
+     */
+    private static final class CoalescedTask 
+    implements Runnable, Serializable {
+
+        /** Serial Version UID. */
+        private static final long serialVersionUID = 20070101L;
+        
+        private final Object key;
+        
+        /** The current task, or null once the entry has been taken from the queue. */
+        private final AtomicReference<Runnable> task;
+        
+        /**
+         * Creates a new <code>CoalescedTask</code>.
+         * 
+         * @param key the coalescing key
+         * @param task the initial task
+         */
+        private CoalescedTask(Object key, Runnable task) {
+            super();
+            this.key = key;
+            this.task = new AtomicReference<>(task);
+        }
+        
+        /**
+         * Replaces the current task, provided the entry has not yet been 
+         * taken from the queue.
+         * 
+         * @param newTask the new task
+         * @return true if the task was replaced
+         */
+        private boolean replace(Runnable newTask) {
+            for (;;) {
+                Runnable current = task.get();
+                if (current == null) {
+                    return false;
+                }
+                if (task.compareAndSet(current, newTask)) {
+                    return true;
+                }
+            }
+        }
+        
+        /**
+         * @see java.lang.Runnable#run()
+         */
+        public void run() {
+            throw new IllegalStateException("Coalesced task entries must be taken, not run.");
+        }
+    }
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    
+    /**
+     * The number of queued tasks.  Incremented before a task is added, such
+     * that it is never less than the number of tasks actually present.
+     */
+    private final AtomicInteger size = new AtomicInteger();
+    
+    /**
+     * Mapping between coalescing keys and queued <code>CoalescedTask</code>s.
+     */
+    private final Map<Object, CoalescedTask> coalescedTasks = new ConcurrentHashMap<>();
+    
+    /**
+     * Flag indicating that the queue has been removed from its 
+     * <code>ApplicationInstance</code>.
+     */
+    private volatile boolean removed;
+    
+    /**
+     * Scheduled tasks which enqueue tasks into this queue, cancelled when the
+     * queue is removed (guarded by <code>this</code>).  Not retained on 
+     * serialization, as scheduled tasks are not.
+     */
+    private transient Set<ScheduledTaskHandle> scheduledTasks;
+    
+    /**
+     * Adds a task to the end of the queue.  The task is not added if the 
+     * queue has been removed.
+     * This method may be invoked by any thread.
+     * 
+     * @param task the task to add
+     * @return true if the task was added, false if the queue has been removed
+     */
+    boolean add(Runnable task) {
+        if (removed) {
+            return false;
+        }
+        size.incrementAndGet();
+        tasks.offer(task);
+        if (removed) {
+            // Queue removed concurrently: discard the task, as the queue will no longer be drained.
+            clear();
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Adds a task to the end of the queue, or replaces the queued task with
+     * the same coalescing key, if one exists.  The task is not added if the
+     * queue has been removed.
+     * This method may be invoked by any thread.
+     * 
+     * @param coalesceKey the coalescing key
+     * @param task the task to add
+     * @return true if the task was added, false if the queue has been removed
+     */
+    boolean add(Object coalesceKey, Runnable task) {
+        for (;;) {
+            if (removed) {
+                return false;
+            }
+            CoalescedTask pending = coalescedTasks.get(coalesceKey);
+            if (pending != null) {
+                if (pending.replace(task)) {
+                    return true;
+                }
+                // Pending entry has been taken from the queue, but not yet unmapped.
+                coalescedTasks.remove(coalesceKey, pending);
+            } else {
+                CoalescedTask coalescedTask = new CoalescedTask(coalesceKey, task);
+                if (coalescedTasks.putIfAbsent(coalesceKey, coalescedTask) == null) {
+                    if (!add(coalescedTask)) {
+                        coalescedTasks.remove(coalesceKey, coalescedTask);
+                        return false;
+                    }
+                    return true;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Registers a scheduled task which enqueues tasks into this queue, such
+     * that it will be cancelled if the queue is removed.  The task is 
+     * cancelled immediately if the queue has already been removed.
+     * This method may be invoked by any thread.
+     * 
+     * @param scheduledTask the scheduled task
+     */
+    void addScheduledTask(ScheduledTaskHandle scheduledTask) {
+        synchronized (this) {
+            if (!removed) {
+                if (scheduledTasks == null) {
+                    scheduledTasks = new HashSet<>();
+                }
+                scheduledTasks.add(scheduledTask);
+                return;
+            }
+        }
+        scheduledTask.cancel();
+    }
+    
+    /**
+     * Removes all queued tasks.
+     */
+    void clear() {
+        while (poll() != null) { }
+    }
+    
+    /**
+     * Determines if the queue has been removed from its 
+     * <code>ApplicationInstance</code>, such that its tasks will not be run.
+     * This method may be invoked by any thread.
+     * 
+     * @return true if the queue has been removed
+     */
+    boolean isRemoved() {
+        return removed;
+    }
+    
+    /**
+     * Determines if the queue contains any tasks.
+     * This method may be invoked by any thread.
+     * 
+     * @return true if no tasks are queued
+     */
+    boolean isEmpty() {
+        return size.get() == 0;
+    }
+    
+    /**
+     * Removes and returns the task at the head of the queue.
+     * 
+     * @return the task, or null if the queue is empty
+     */
+    Runnable poll() {
+        Runnable task = tasks.poll();
+        if (task == null) {
+            return null;
+        }
+        size.decrementAndGet();
+        if (task instanceof CoalescedTask) {
+            CoalescedTask coalescedTask = (CoalescedTask) task;
+            // Take the current task before unmapping, such that later additions create a new entry.
+            task = coalescedTask.task.getAndSet(null);
+            coalescedTasks.remove(coalescedTask.key, coalescedTask);
+        }
+        return task;
+    }
+    
+    /**
+     * Marks the queue as removed from its <code>ApplicationInstance</code>,
+     * removes all queued tasks, and cancels all scheduled tasks.
+     */
+    void remove() {
+        removed = true;
+        clear();
+        Set<ScheduledTaskHandle> cancelledTasks;
+        synchronized (this) {
+            cancelledTasks = scheduledTasks;
+            scheduledTasks = null;
+        }
+        if (cancelledTasks != null) {
+            Iterator<ScheduledTaskHandle> it = cancelledTasks.iterator();
+            while (it.hasNext()) {
+                it.next().cancel();
+            }
+        }
+    }
+    
+    /**
+     * Unregisters a scheduled task which has been cancelled or has expired.
+     * This method may be invoked by any thread.
+     * 
+     * @param scheduledTask the scheduled task
+     */
+    synchronized void removeScheduledTask(ScheduledTaskHandle scheduledTask) {
+        if (scheduledTasks != null) {
+            scheduledTasks.remove(scheduledTask);
+        }
+    }
+    
+    /**
+     * Returns the number of queued tasks.  Tasks which are in the process of 
+     * being added by another thread may be included in the count.
+     * 
+     * @return the number of tasks
+     */
+    int size() {
+        return size.get();
+    }
+}
@@ -0,0 +1,359 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.app;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A hashed timer wheel, shared by all <code>ApplicationInstance</code>s in
+ * the VM, used to expire scheduled tasks without a thread per application.
+ * <p>
+ * Time is divided into ticks of <code>TICK_DURATION</code> milliseconds.  A 
+ * single daemon thread advances the wheel each tick, expiring the timeouts in
+ * the current bucket whose remaining rounds have elapsed.  Timeouts are thus 
+ * expired up to one tick late.  Timeouts are scheduled and cancelled without
+ * locking: new timeouts are handed to the wheel thread through a 
+ * non-blocking queue, and cancelled timeouts are removed from their buckets
+ * when next encountered.
+ * <p>
+ * Timeouts are expired on the wheel thread, and must thus complete quickly.
+ * <p>
+ * The wheel thread is started when a timeout is scheduled, and terminates 
+ * once no timeouts (including cancelled timeouts not yet removed from their
+ * buckets) remain, such that no thread outlives the applications which use
+ * the wheel, e.g., when a web application is undeployed.
+ */
+final class TimerWheel 
+implements Runnable {
+    
+    /** Duration of a tick, in milliseconds. */
+    private static final long TICK_DURATION = 10;
+    
+    /** Number of buckets in the wheel (must be a power of two). */
+    private static final int WHEEL_SIZE = 512;
+    
+    private static TimerWheel instance;
+    
+    /**
+     * Returns the shared <code>TimerWheel</code>.
+     * 
+     * @return the shared <code>TimerWheel</code>
+     */
+    static synchronized TimerWheel getInstance() {
+        if (instance == null) {
+            instance = new TimerWheel();
+        }
+        return instance;
+    }
+    
+    /**
+     * A scheduled timeout.  Subclasses provide the action to perform on
+     * expiration.
+     */
+    static abstract class Timeout 
+    implements ScheduledTaskHandle {
+        
+        private static final int STATE_PENDING = 0;
+        private static final int STATE_CANCELLED = 1;
+        private static final int STATE_EXPIRED = 2;
+        
+        /** The repeat period, in nanoseconds, or 0 for a non-repeating timeout. */
+        private final long period;
+        
+        private final AtomicInteger state = new AtomicInteger(STATE_PENDING);
+        
+        /** The expiration time, in nanoseconds relative to the start of the wheel. */
+        private long deadline;
+        
+        /** Number of full wheel rotations remaining before expiration (wheel thread only). */
+        private long remainingRounds;
+        
+        /** Links within the containing bucket (wheel thread only). */
+        private Timeout previous, next;
+        
+        /**
+         * Creates a new <code>Timeout</code>.
+         * 
+         * @param period the repeat period, in milliseconds, or 0 for a 
+         *        non-repeating timeout
+         */
+        Timeout(long period) {
+            super();
+            this.period = TimeUnit.MILLISECONDS.toNanos(period);
+        }
+        
+        /**
+         * @see nextapp.echo.app.ScheduledTaskHandle#cancel()
+         */
+        public boolean cancel() {
+            return state.compareAndSet(STATE_PENDING, STATE_CANCELLED);
+        }
+        
+        /**
+         * Performs the action of the timeout.  Invoked by the wheel thread
+         * on each expiration.
+         */
+        abstract void expire();
+        
+        /**
+         * @see nextapp.echo.app.ScheduledTaskHandle#isCancelled()
+         */
+        public boolean isCancelled() {
+            return state.get() == STATE_CANCELLED;
+        }
+        
+        /**
+         * Determines whether the timeout repeats.
+         * 
+         * @return true if the timeout repeats
+         */
+        boolean isRepeating() {
+            return period != 0;
+        }
+    }
+    
+    /** Head of each bucket's list of timeouts. */
+    private final Timeout[] buckets = new Timeout[WHEEL_SIZE];
+    
+    /** Timeouts awaiting placement in a bucket by the wheel thread. */
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    
+    private final long startTime = System.nanoTime();
+    private final long tickDuration = TimeUnit.MILLISECONDS.toNanos(TICK_DURATION);
+    
+    /** The number of ticks elapsed (wheel thread only). */
+    private long tick;
+    
+    /** The number of timeouts placed in buckets (wheel thread only). */
+    private int bucketedCount;
+    
+    /** An error thrown by an expired timeout during the current tick, or null (wheel thread only). */
+    private Error pendingError;
+    
+    /** Flag indicating whether the wheel thread is running (guarded by <code>this</code>). */
+    private boolean running;
+    
+    /**
+     * Creates a new <code>TimerWheel</code>.
+     */
+    private TimerWheel() {
+        super();
+    }
+    
+    /**
+     * Adds a timeout to the head of a bucket.
+     * 
+     * @param timeout the timeout
+     * @param index the bucket index
+     */
+    private void addToBucket(Timeout timeout, int index) {
+        timeout.previous = null;
+        timeout.next = buckets[index];
+        if (buckets[index] != null) {
+            buckets[index].previous = timeout;
+        }
+        buckets[index] = timeout;
+        ++bucketedCount;
+    }
+    
+    /**
+     * Expires the timeouts in the bucket for the current tick whose remaining
+     * rounds have elapsed, removing them (and any cancelled timeouts) from
+     * the bucket.  Repeating timeouts are rescheduled.
+     */
+    private void expireBucket() {
+        int index = (int) (tick & (WHEEL_SIZE - 1));
+        Timeout timeout = buckets[index];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.isCancelled()) {
+                removeFromBucket(timeout, index);
+            } else if (timeout.remainingRounds <= 0) {
+                removeFromBucket(timeout, index);
+                if (timeout.period == 0) {
+                    if (timeout.state.compareAndSet(Timeout.STATE_PENDING, Timeout.STATE_EXPIRED)) {
+                        expire(timeout);
+                    }
+                } else {
+                    expire(timeout);
+                    timeout.deadline += timeout.period;
+                    pendingTimeouts.add(timeout);
+                }
+            } else {
+                --timeout.remainingRounds;
+            }
+            timeout = next;
+        }
+    }
+    
+    /**
+     * Expires a single timeout, isolating the wheel thread from failures.
+     * 
+     * @param timeout the timeout
+     */
+    private void expire(Timeout timeout) {
+        try {
+            timeout.expire();
+        } catch (RuntimeException ex) {
+            // Do not allow a failing timeout to stop the wheel: cancel it.
+            timeout.cancel();
+        } catch (Error ex) {
+            // Cancel the timeout and propagate the error once the current tick has been completed.
+            timeout.cancel();
+            if (pendingError == null) {
+                pendingError = ex;
+            }
+        }
+    }
+    
+    /**
+     * Removes a timeout from a bucket.
+     * 
+     * @param timeout the timeout
+     * @param index the bucket index
+     */
+    private void removeFromBucket(Timeout timeout, int index) {
+        if (timeout.previous == null) {
+            buckets[index] = timeout.next;
+        } else {
+            timeout.previous.next = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        }
+        timeout.previous = null;
+        timeout.next = null;
+        --bucketedCount;
+    }
+    
+    /**
+     * @see java.lang.Runnable#run()
+     */
+    public void run() {
+        try {
+            runTicks();
+        } finally {
+            synchronized (this) {
+                running = false;
+                // Replace the thread if timeouts remain, i.e., if terminated by an error or if a timeout was
+                // scheduled while stopping.
+                if (bucketedCount != 0 || !pendingTimeouts.isEmpty()) {
+                    start();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Advances the wheel, expiring timeouts on each tick, until no timeouts
+     * remain.
+     */
+    private void runTicks() {
+        if (bucketedCount == 0) {
+            // Skip ticks elapsed while the wheel was stopped, during which all buckets were empty.
+            tick = Math.max(tick, (System.nanoTime() - startTime) / tickDuration);
+        }
+        for (;;) {
+            long sleepTime = tickDuration * (tick + 1) - (System.nanoTime() - startTime);
+            if (sleepTime > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepTime);
+                } catch (InterruptedException ex) {
+                    // Continue: the wheel stops only when no timeouts remain.
+                }
+                continue;
+            }
+            transferPendingTimeouts();
+            expireBucket();
+            ++tick;
+            if (pendingError != null) {
+                // Terminate the thread, reporting the error: the thread is replaced as timeouts remain.
+                Error error = pendingError;
+                pendingError = null;
+                throw error;
+            }
+            if (bucketedCount == 0 && pendingTimeouts.isEmpty()) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Schedules a timeout.
+     * This method may be invoked by any thread.
+     * 
+     * @param timeout the timeout, which must not previously have been 
+     *        scheduled
+     * @param delay the delay before the first expiration, in milliseconds
+     */
+    void schedule(Timeout timeout, long delay) {
+        timeout.deadline = System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(delay);
+        pendingTimeouts.add(timeout);
+        synchronized (this) {
+            // The timeout is queued before the running flag is tested, such that a stopping wheel thread either
+            // observes it or is replaced.
+            if (!running) {
+                start();
+            }
+        }
+    }
+    
+    /**
+     * Starts a new wheel thread.  Invoked while synchronized on the wheel.
+     */
+    private void start() {
+        running = true;
+        Thread thread = new Thread(this, "Echo TimerWheel");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Places timeouts awaiting scheduling in their buckets.
+     */
+    private void transferPendingTimeouts() {
+        Timeout timeout;
+        while ((timeout = pendingTimeouts.poll()) != null) {
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            // Round up, such that timeouts are never expired early.
+            long expirationTick = (timeout.deadline + tickDuration - 1) / tickDuration;
+            if (expirationTick < tick) {
+                expirationTick = tick;
+            }
+            timeout.remainingRounds = (expirationTick - tick) / WHEEL_SIZE;
+            addToBucket(timeout, (int) (expirationTick & (WHEEL_SIZE - 1)));
+        }
+    }
+}
@@ -0,0 +1,796 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.app.table;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A <code>TableModel</code> which stores its data by column in primitive
+ * arrays rather than as rows of objects.  Each column has a fixed type: 
+ * <code>int</code>, <code>long</code>, <code>double</code>, or 
+ * <code>String</code>, the latter being dictionary-encoded such that 
+ * repeated values are stored once.  Null values are recorded in a per-column
+ * bitmap.
+ * <p>
+ * Values are returned by <code>getValueAt()</code> as <code>Integer</code>, 
+ * <code>Long</code>, <code>Double</code>, or <code>String</code> objects;
+ * the typed accessors (e.g., <code>getInt()</code>) may be used to retrieve
+ * values without boxing.
+ */
+public class ColumnarTableModel extends AbstractTableModel {
+
+    /** Serial Version UID. */
+    private static final long serialVersionUID = 20070101L;
+
+    /** Column type storing <code>int</code> values. */
+    public static final int TYPE_INT = 0;
+
+    /** Column type storing <code>long</code> values. */
+    public static final int TYPE_LONG = 1;
+
+    /** Column type storing <code>double</code> values. */
+    public static final int TYPE_DOUBLE = 2;
+
+    /** Column type storing dictionary-encoded <code>String</code> values. */
+    public static final int TYPE_STRING = 3;
+    
+    /** Initial row capacity of columns. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Storage for a single column.  Values are stored in a type-specific
+     * primitive array; null values are recorded in a bitmap.
+     */
+    private abstract static class Column 
+    implements Serializable {
+        
+        /** Serial Version UID. */
+        private static final long serialVersionUID = 20070101L;
+        
+        String name;
+        
+        /** Null bitmap, a set bit indicating a null value. */
+        long[] nulls = new long[(INITIAL_CAPACITY + 63) / 64];
+        
+        /**
+         * Creates a new <code>Column</code>.
+         * 
+         * @param name the column name
+         */
+        Column(String name) {
+            this.name = name;
+        }
+        
+        /**
+         * Determines whether a non-null value may be stored in the column.
+         * 
+         * @param value the value
+         * @return true if the value is of an acceptable type
+         */
+        abstract boolean accepts(Object value);
+        
+        /**
+         * Returns the boxed value at the specified row.
+         * 
+         * @param row the row index
+         * @return the value
+         */
+        abstract Object box(int row);
+        
+        /**
+         * Returns the object class of values in the column.
+         * 
+         * @return the class
+         */
+        abstract Class getValueClass();
+        
+        /**
+         * Returns the row capacity of the value array.
+         * 
+         * @return the capacity
+         */
+        abstract int capacity();
+        
+        /**
+         * Verifies that a value may be stored in the column.
+         * 
+         * @param value the value, or null
+         * @throws IllegalArgumentException if the value is not of an 
+         *         acceptable type
+         */
+        void checkValue(Object value) {
+            if (value != null && !accepts(value)) {
+                throw new IllegalArgumentException("Invalid value for " + getValueClass().getName() + " column: " 
+                        + value.getClass().getName());
+            }
+        }
+        
+        /**
+         * Resets values in the value array to zero.
+         * 
+         * @param row the first row to reset
+         * @param count the number of rows to reset
+         */
+        abstract void clear(int row, int count);
+        
+        /**
+         * Copies values within the value array, as <code>System.arraycopy()</code>.
+         * 
+         * @param srcRow the first source row
+         * @param destRow the first destination row
+         * @param count the number of rows to copy
+         */
+        abstract void copy(int srcRow, int destRow, int count);
+        
+        /**
+         * Reallocates the value array with the specified capacity.
+         * 
+         * @param newCapacity the new capacity
+         */
+        abstract void reallocate(int newCapacity);
+        
+        /**
+         * Stores a non-null value in the value array.
+         * 
+         * @param row the row index
+         * @param value the value
+         */
+        abstract void store(int row, Object value);
+        
+        /**
+         * Ensures capacity for the specified number of rows.
+         * 
+         * @param rowCount the required row count
+         */
+        void ensureCapacity(int rowCount) {
+            int capacity = capacity();
+            if (rowCount <= capacity) {
+                return;
+            }
+            int newCapacity = Math.max(capacity * 2, rowCount);
+            reallocate(newCapacity);
+            long[] newNulls = new long[(newCapacity + 63) / 64];
+            System.arraycopy(nulls, 0, newNulls, 0, nulls.length);
+            nulls = newNulls;
+        }
+        
+        /**
+         * Returns the value at the specified row.
+         * 
+         * @param row the row index
+         * @return the value, or null
+         */
+        Object get(int row) {
+            return isNull(row) ? null : box(row);
+        }
+        
+        /**
+         * Opens space for null rows, shifting subsequent rows.
+         * 
+         * @param row the index of the first inserted row
+         * @param count the number of inserted rows
+         * @param rowCount the row count prior to insertion
+         */
+        void insert(int row, int count, int rowCount) {
+            ensureCapacity(rowCount + count);
+            copy(row, row + count, rowCount - row);
+            for (int i = rowCount - 1; i >= row; --i) {
+                setNull(i + count, isNull(i));
+            }
+            clear(row, count);
+            for (int i = row; i < row + count; ++i) {
+                setNull(i, true);
+            }
+        }
+        
+        /**
+         * Removes rows, shifting subsequent rows.
+         * 
+         * @param row the index of the first deleted row
+         * @param count the number of deleted rows
+         * @param rowCount the row count prior to deletion
+         */
+        void delete(int row, int count, int rowCount) {
+            copy(row + count, row, rowCount - row - count);
+            for (int i = row; i < rowCount - count; ++i) {
+                setNull(i, isNull(i + count));
+            }
+            for (int i = rowCount - count; i < rowCount; ++i) {
+                setNull(i, false);
+            }
+        }
+        
+        /**
+         * Determines if the value at the specified row is null.
+         * 
+         * @param row the row index
+         * @return true if the value is null
+         */
+        boolean isNull(int row) {
+            return (nulls[row >> 6] & (1L << row)) != 0;
+        }
+        
+        /**
+         * Sets the value at the specified row.
+         * 
+         * @param row the row index
+         * @param value the value, or null
+         */
+        void set(int row, Object value) {
+            if (value == null) {
+                clear(row, 1);
+                setNull(row, true);
+            } else {
+                store(row, value);
+                setNull(row, false);
+            }
+        }
+        
+        /**
+         * Sets or clears the null flag of a row.
+         * 
+         * @param row the row index
+         * @param isNull true if the value is null
+         */
+        void setNull(int row, boolean isNull) {
+            if (isNull) {
+                nulls[row >> 6] |= 1L << row;
+            } else {
+                nulls[row >> 6] &= ~(1L << row);
+            }
+        }
+    }
+    
+    /**
+     * <code>int</code> column storage.
+     */
+    private static class IntColumn extends Column {
+        
+        /** Serial Version UID. */
+        private static final long serialVersionUID = 20070101L;
+        
+        int[] values = new int[INITIAL_CAPACITY];
+        
+        IntColumn(String name) {
+            super(name);
+        }
+        
+        Object box(int row) {
+            return Integer.valueOf(values[row]);
+        }
+        
+        Class getValueClass() {
+            return Integer.class;
+        }
+        
+        boolean accepts(Object value) {
+            return value instanceof Number;
+        }
+        
+        int capacity() {
+            return values.length;
+        }
+        
+        void clear(int row, int count) {
+            Arrays.fill(values, row, row + count, 0);
+        }
+        
+        void copy(int srcRow, int destRow, int count) {
+            System.arraycopy(values, srcRow, values, destRow, count);
+        }
+        
+        void reallocate(int newCapacity) {
+            int[] newValues = new int[newCapacity];
+            System.arraycopy(values, 0, newValues, 0, values.length);
+            values = newValues;
+        }
+        
+        void store(int row, Object value) {
+            values[row] = ((Number) value).intValue();
+        }
+    }
+    
+    /**
+     * <code>long</code> column storage.
+     */
+    private static class LongColumn extends Column {
+        
+        /** Serial Version UID. */
+        private static final long serialVersionUID = 20070101L;
+        
+        long[] values = new long[INITIAL_CAPACITY];
+        
+        LongColumn(String name) {
+            super(name);
+        }
+        
+        Object box(int row) {
+            return Long.valueOf(values[row]);
+        }
+        
+        Class getValueClass() {
+            return Long.class;
+        }
+        
+        boolean accepts(Object value) {
+            return value instanceof Number;
+        }
+        
+        int capacity() {
+            return values.length;
+        }
+        
+        void clear(int row, int count) {
+            Arrays.fill(values, row, row + count, 0);
+        }
+        
+        void copy(int srcRow, int destRow, int count) {
+            System.arraycopy(values, srcRow, values, destRow, count);
+        }
+        
+        void reallocate(int newCapacity) {
+            long[] newValues = new long[newCapacity];
+            System.arraycopy(values, 0, newValues, 0, values.length);
+            values = newValues;
+        }
+        
+        void store(int row, Object value) {
+            values[row] = ((Number) value).longValue();
+        }
+    }
+    
+    /**
+     * <code>double</code> column storage.
+     */
+    private static class DoubleColumn extends Column {
+        
+        /** Serial Version UID. */
+        private static final long serialVersionUID = 20070101L;
+        
+        double[] values = new double[INITIAL_CAPACITY];
+        
+        DoubleColumn(String name) {
+            super(name);
+        }
+        
+        Object box(int row) {
+            return Double.valueOf(values[row]);
+        }
+        
+        Class getValueClass() {
+            return Double.class;
+        }
+        
+        boolean accepts(Object value) {
+            return value instanceof Number;
+        }
+        
+        int capacity() {
+            return values.length;
+        }
+        
+        void clear(int row, int count) {
+            Arrays.fill(values, row, row + count, 0);
+        }
+        
+        void copy(int srcRow, int destRow, int count) {
+            System.arraycopy(values, srcRow, values, destRow, count);
+        }
+        
+        void reallocate(int newCapacity) {
+            double[] newValues = new double[newCapacity];
+            System.arraycopy(values, 0, newValues, 0, values.length);
+            values = newValues;
+        }
+        
+        void store(int row, Object value) {
+            values[row] = ((Number) value).doubleValue();
+        }
+    }
+    
+    /**
+     * Dictionary-encoded <code>String</code> column storage.  Each distinct
+     * value is stored once in the dictionary; rows store dictionary codes.
+     * Dictionary entries are never removed.
+     */
+    private static class StringColumn extends Column {
+        
+        /** Serial Version UID. */
+        private static final long serialVersionUID = 20070101L;
+        
+        int[] codes = new int[INITIAL_CAPACITY];
+        List<String> dictionary = new ArrayList<>();
+        Map<String, Integer> dictionaryCodes = new HashMap<>();
+        
+        StringColumn(String name) {
+            super(name);
+        }
+        
+        Object box(int row) {
+            return dictionary.get(codes[row]);
+        }
+        
+        Class getValueClass() {
+            return String.class;
+        }
+        
+        boolean accepts(Object value) {
+            return value instanceof String;
+        }
+        
+        int capacity() {
+            return codes.length;
+        }
+        
+        void clear(int row, int count) {
+            Arrays.fill(codes, row, row + count, 0);
+        }
+        
+        void copy(int srcRow, int destRow, int count) {
+            System.arraycopy(codes, srcRow, codes, destRow, count);
+        }
+        
+        void reallocate(int newCapacity) {
+            int[] newCodes = new int[newCapacity];
+            System.arraycopy(codes, 0, newCodes, 0, codes.length);
+            codes = newCodes;
+        }
+        
+        void store(int row, Object value) {
+            String stringValue = (String) value;
+            Integer code = dictionaryCodes.get(stringValue);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(stringValue);
+                dictionaryCodes.put(stringValue, code);
+            }
+            codes[row] = code;
+        }
+    }
+    
+    private List<Column> columns = new ArrayList<>();
+    private int rowCount;
+    
+    /**
+     * Creates a new, empty <code>ColumnarTableModel</code>.
+     */
+    public ColumnarTableModel() {
+        super();
+    }
+    
+    /**
+     * Adds a column to the end of the model.  Existing rows will contain
+     * null values in the new column.
+     * 
+     * @param name the column name
+     * @param type the column type, one of the following values:
+     *        <ul>
+     *        <li><code>TYPE_INT</code></li>
+     *        <li><code>TYPE_LONG</code></li>
+     *        <li><code>TYPE_DOUBLE</code></li>
+     *        <li><code>TYPE_STRING</code></li>
+     *        </ul>
+     */
+    public void addColumn(String name, int type) {
+        Column column;
+        switch (type) {
+        case TYPE_INT:
+            column = new IntColumn(name);
+            break;
+        case TYPE_LONG:
+            column = new LongColumn(name);
+            break;
+        case TYPE_DOUBLE:
+            column = new DoubleColumn(name);
+            break;
+        case TYPE_STRING:
+            column = new StringColumn(name);
+            break;
+        default:
+            throw new IllegalArgumentException("Invalid column type: " + type);
+        }
+        column.insert(0, rowCount, 0);
+        columns.add(column);
+        fireTableStructureChanged();
+    }
+    
+    /**
+     * Adds a row containing the provided data to the end of the model.
+     *
+     * @param rowData the row data
+     */
+    public void addRow(Object[] rowData) {
+        insertRow(rowCount, rowData);
+    }
+    
+    /**
+     * Adds multiple rows to the end of the model, firing a single event.
+     * 
+     * @param rowData the row data, the first index representing the row 
+     *        and the second index representing the column
+     * @throws IllegalArgumentException if a value is not of a type accepted
+     *         by its column, in which case no rows are added
+     */
+    public void addRows(Object[][] rowData) {
+        if (rowData.length == 0) {
+            return;
+        }
+        for (int i = 0; i < rowData.length; ++i) {
+            checkRow(rowData[i]);
+        }
+        int firstRow = rowCount;
+        for (int columnIndex = 0; columnIndex < columns.size(); ++columnIndex) {
+            Column column = columns.get(columnIndex);
+            column.insert(firstRow, rowData.length, rowCount);
+            for (int i = 0; i < rowData.length; ++i) {
+                if (columnIndex < rowData[i].length) {
+                    column.set(firstRow + i, rowData[i][columnIndex]);
+                }
+            }
+        }
+        rowCount += rowData.length;
+        fireTableRowsInserted(firstRow, rowCount - 1);
+    }
+    
+    /**
+     * Verifies that a coordinate exists within the model.
+     * 
+     * @param column the column index
+     * @param row the row index
+     * @throws ArrayIndexOutOfBoundsException if the coordinate does not exist
+     */
+    private void checkCoordinate(int column, int row) {
+        if (column < 0 || column >= columns.size() || row < 0 || row >= rowCount) {
+            throw new ArrayIndexOutOfBoundsException("Table coordinate (" + column + ", " + row + ") does not exist");
+        }
+    }
+    
+    /**
+     * Verifies that all values of a row may be stored in their columns,
+     * such that the row may be inserted without partially modifying the model.
+     * 
+     * @param rowData the row data
+     * @throws IllegalArgumentException if a value is not of a type accepted
+     *         by its column
+     */
+    private void checkRow(Object[] rowData) {
+        int count = Math.min(rowData.length, columns.size());
+        for (int i = 0; i < count; ++i) {
+            columns.get(i).checkValue(rowData[i]);
+        }
+    }
+    
+    /**
+     * Deletes the specified row.
+     *
+     * @param row the row to delete
+     */
+    public void deleteRow(int row) {
+        deleteRows(row, row);
+    }
+    
+    /**
+     * Deletes a range of rows, firing a single event.
+     * 
+     * @param firstRow the first row to delete
+     * @param lastRow the last row to delete (inclusive)
+     */
+    public void deleteRows(int firstRow, int lastRow) {
+        if (firstRow < 0 || lastRow >= rowCount || lastRow < firstRow) {
+            throw new ArrayIndexOutOfBoundsException("Table rows " + firstRow + "-" + lastRow + " do not exist.");
+        }
+        int count = lastRow - firstRow + 1;
+        for (int i = 0; i < columns.size(); ++i) {
+            columns.get(i).delete(firstRow, count, rowCount);
+        }
+        rowCount -= count;
+        fireTableRowsDeleted(firstRow, lastRow);
+    }
+    
+    /**
+     * @see nextapp.echo.app.table.TableModel#getColumnClass(int)
+     */
+    public Class getColumnClass(int column) {
+        return columns.get(column).getValueClass();
+    }
+    
+    /**
+     * @see nextapp.echo.app.table.TableModel#getColumnCount()
+     */
+    public int getColumnCount() {
+        return columns.size();
+    }
+    
+    /**
+     * @see nextapp.echo.app.table.TableModel#getColumnName(int)
+     */
+    public String getColumnName(int column) {
+        String name = columns.get(column).name;
+        return name == null ? super.getColumnName(column) : name;
+    }
+    
+    /**
+     * Returns the value of a <code>TYPE_DOUBLE</code> cell.
+     * 
+     * @param column the column index
+     * @param row the row index
+     * @return the value, or 0 if the value is null
+     */
+    public double getDouble(int column, int row) {
+        checkCoordinate(column, row);
+        return ((DoubleColumn) columns.get(column)).values[row];
+    }
+    
+    /**
+     * Returns the value of a <code>TYPE_INT</code> cell.
+     * 
+     * @param column the column index
+     * @param row the row index
+     * @return the value, or 0 if the value is null
+     */
+    public int getInt(int column, int row) {
+        checkCoordinate(column, row);
+        return ((IntColumn) columns.get(column)).values[row];
+    }
+    
+    /**
+     * Returns the value of a <code>TYPE_LONG</code> cell.
+     * 
+     * @param column the column index
+     * @param row the row index
+     * @return the value, or 0 if the value is null
+     */
+    public long getLong(int column, int row) {
+        checkCoordinate(column, row);
+        return ((LongColumn) columns.get(column)).values[row];
+    }
+    
+    /**
+     * @see nextapp.echo.app.table.TableModel#getRowCount()
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+    
+    /**
+     * @see nextapp.echo.app.table.TableModel#getValueAt(int, int)
+     */
+    public Object getValueAt(int column, int row) {
+        checkCoordinate(column, row);
+        return columns.get(column).get(row);
+    }
+    
+    /**
+     * Inserts a row containing the provided data.
+     *
+     * @param row the insertion index
+     * @param rowData the row data
+     * @throws IllegalArgumentException if a value is not of a type accepted
+     *         by its column, in which case the row is not inserted
+     */
+    public void insertRow(int row, Object[] rowData) {
+        if (row < 0 || row > rowCount) {
+            throw new ArrayIndexOutOfBoundsException("Table row " + row + " does not exist.");
+        }
+        checkRow(rowData);
+        for (int columnIndex = 0; columnIndex < columns.size(); ++columnIndex) {
+            Column column = columns.get(columnIndex);
+            column.insert(row, 1, rowCount);
+            if (columnIndex < rowData.length) {
+                column.set(row, rowData[columnIndex]);
+            }
+        }
+        ++rowCount;
+        fireTableRowsInserted(row, row);
+    }
+    
+    /**
+     * Determines if the value of a cell is null.
+     * 
+     * @param column the column index
+     * @param row the row index
+     * @return true if the value is null
+     */
+    public boolean isNull(int column, int row) {
+        checkCoordinate(column, row);
+        return columns.get(column).isNull(row);
+    }
+    
+    /**
+     * Sets the value of a <code>TYPE_DOUBLE</code> cell.
+     * 
+     * @param newValue the new value
+     * @param column the column index
+     * @param row the row index
+     */
+    public void setDouble(double newValue, int column, int row) {
+        checkCoordinate(column, row);
+        Column storage = columns.get(column);
+        ((DoubleColumn) storage).values[row] = newValue;
+        storage.setNull(row, false);
+        fireTableCellUpdated(column, row);
+    }
+    
+    /**
+     * Sets the value of a <code>TYPE_INT</code> cell.
+     * 
+     * @param newValue the new value
+     * @param column the column index
+     * @param row the row index
+     */
+    public void setInt(int newValue, int column, int row) {
+        checkCoordinate(column, row);
+        Column storage = columns.get(column);
+        ((IntColumn) storage).values[row] = newValue;
+        storage.setNull(row, false);
+        fireTableCellUpdated(column, row);
+    }
+    
+    /**
+     * Sets the value of a <code>TYPE_LONG</code> cell.
+     * 
+     * @param newValue the new value
+     * @param column the column index
+     * @param row the row index
+     */
+    public void setLong(long newValue, int column, int row) {
+        checkCoordinate(column, row);
+        Column storage = columns.get(column);
+        ((LongColumn) storage).values[row] = newValue;
+        storage.setNull(row, false);
+        fireTableCellUpdated(column, row);
+    }
+    
+    /**
+     * Sets the contents of the table cell at the specified coordinate.
+     * Numeric columns accept any <code>Number</code>; string columns accept 
+     * <code>String</code>s.
+     *
+     * @param newValue the new value (may be null)
+     * @param column the column index
+     * @param row the row index
+     * @throws ArrayIndexOutOfBoundsException if the column or row index
+     *         exceed the column or row count
+     * @throws IllegalArgumentException if the value is not of a type
+     *         accepted by the column
+     */
+    public void setValueAt(Object newValue, int column, int row) {
+        checkCoordinate(column, row);
+        Column storage = columns.get(column);
+        storage.checkValue(newValue);
+        storage.set(row, newValue);
+        fireTableCellUpdated(column, row);
+    }
+}
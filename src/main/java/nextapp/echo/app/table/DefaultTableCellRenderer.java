@@ -35,9 +35,10 @@ import nextapp.echo.app.Table;
 
 /**
  * Default <code>TableCellRenderer</code> implementation.
+ * Rendered <code>Label</code>s are recycled by the <code>Table</code>.
  */
 public class DefaultTableCellRenderer 
-implements TableCellRenderer {
+implements RecyclingTableCellRenderer {
 
     /** Serial Version UID. */
     private static final long serialVersionUID = 20070101L;
@@ -56,4 +57,27 @@ implements TableCellRenderer {
             return new Label(value.toString());
         }
     }
+
+    /**
+     * Returns <code>Label</code>.  Subclasses, which may render other types
+     * of components, do not recycle components unless they override this 
+     * method.
+     * 
+     * @see nextapp.echo.app.table.RecyclingTableCellRenderer#getTableCellRendererComponentClass(
+     *      nextapp.echo.app.Table, java.lang.Object, int, int)
+     */
+    public Class getTableCellRendererComponentClass(Table table, Object value, int column, int row) {
+        return getClass() == DefaultTableCellRenderer.class ? Label.class : null;
+    }
+
+    /**
+     * Sets the text of the recycled <code>Label</code> to the toString() 
+     * value of the model value.
+     * 
+     * @see nextapp.echo.app.table.RecyclingTableCellRenderer#reconfigureTableCellRendererComponent(
+     *      nextapp.echo.app.Table, nextapp.echo.app.Component, java.lang.Object, int, int)
+     */
+    public void reconfigureTableCellRendererComponent(Table table, Component component, Object value, int column, int row) {
+        ((Label) component).setText(value == null ? null : value.toString());
+    }
 }
@@ -0,0 +1,74 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.app.table;
+
+import nextapp.echo.app.Component;
+import nextapp.echo.app.Table;
+
+/**
+ * A <code>TableCellRenderer</code> whose rendered components may be recycled.
+ * When cell components rendered by such a renderer are removed from a 
+ * <code>Table</code>, the table retains them in a pool, keyed by renderer
+ * and component class, and later provides them to the renderer to be
+ * reconfigured for a new value rather than creating new components.
+ */
+public interface RecyclingTableCellRenderer
+extends TableCellRenderer {
+    
+    /**
+     * Returns the class of component which will be used to render the 
+     * specified cell.  
+     * 
+     * @param table the <code>Table</code> for which the rendering is occurring
+     * @param value the value retrieved from the <code>TableModel</code> for the
+     *        specified coordinate
+     * @param column the column index to render
+     * @param row the row index to render
+     * @return the component class, or null if the cell should not be rendered
+     *         with a recycled component
+     */
+    public Class getTableCellRendererComponentClass(Table table, Object value, int column, int row);
+    
+    /**
+     * Reconfigures a recycled component, previously returned by this 
+     * renderer's <code>getTableCellRendererComponent()</code> method, to 
+     * display the specified cell.  The component will be of the class 
+     * returned by <code>getTableCellRendererComponentClass()</code> for the
+     * same cell, and will not be registered to an application.
+     * 
+     * @param table the <code>Table</code> for which the rendering is occurring
+     * @param component the recycled component
+     * @param value the value retrieved from the <code>TableModel</code> for the
+     *        specified coordinate
+     * @param column the column index to render
+     * @param row the row index to render
+     */
+    public void reconfigureTableCellRendererComponent(Table table, Component component, Object value, int column, int row);
+}
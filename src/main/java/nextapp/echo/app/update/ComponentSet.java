@@ -0,0 +1,322 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.app.update;
+
+import java.io.Serializable;
+
+import nextapp.echo.app.Component;
+
+/**
+ * A compact set of <code>Component</code>s, compared by identity, used to 
+ * store the contents of <code>ServerComponentUpdate</code>s.
+ * <p>
+ * Members are stored densely in an array, such that they may be iterated by 
+ * index without allocation.  Small sets are searched linearly; larger sets 
+ * additionally maintain an open-addressed hash index of array positions.
+ * Removal moves the last member into the position of the removed member, 
+ * thus member indices are only stable while the set is not modified.
+ * <p>
+ * Clearing a set retains its storage such that it may be reused.
+ */
+final class ComponentSet 
+implements Serializable {
+
+    /** Serial Version UID. */
+    private static final long serialVersionUID = 20070101L;
+
+    private static final Component[] EMPTY_COMPONENT_ARRAY = new Component[0];
+    
+    /** Initial capacity of the member array. */
+    private static final int INITIAL_CAPACITY = 4;
+    
+    /** Size above which a hash index is maintained. */
+    private static final int INDEX_THRESHOLD = 8;
+    
+    /** Maximum member array capacity retained when the set is cleared. */
+    private static final int MAXIMUM_RETAINED_CAPACITY = 64;
+    
+    /** The members, in positions <code>0</code> through <code>size - 1</code>. */
+    private Component[] components = EMPTY_COMPONENT_ARRAY;
+    
+    /** The number of members. */
+    private int size;
+    
+    /** 
+     * Open-addressed hash index, storing member positions plus one (zero indicating an empty slot), or null if the set is
+     * small enough to be searched linearly.
+     */
+    private transient int[] index;
+    
+    /** The number of bits used to address the hash index. */
+    private transient int indexBits;
+    
+    /**
+     * Adds a member.
+     * 
+     * @param component the <code>Component</code> to add
+     * @return true if the component was added, false if it was already a member
+     */
+    boolean add(Component component) {
+        if (indexOf(component) != -1) {
+            return false;
+        }
+        if (size == components.length) {
+            Component[] newComponents = new Component[Math.max(INITIAL_CAPACITY, size * 2)];
+            System.arraycopy(components, 0, newComponents, 0, size);
+            components = newComponents;
+        }
+        components[size++] = component;
+        if (index != null) {
+            if (size * 2 > index.length) {
+                rebuildIndex();
+            } else {
+                indexInsert(size - 1);
+            }
+        } else if (size > INDEX_THRESHOLD) {
+            rebuildIndex();
+        }
+        return true;
+    }
+    
+    /**
+     * Adds all members of another set.
+     * 
+     * @param set the set whose members should be added
+     */
+    void addAll(ComponentSet set) {
+        for (int i = 0; i < set.size; ++i) {
+            add(set.components[i]);
+        }
+    }
+    
+    /**
+     * Removes all members.  Storage is retained for reuse unless it has grown large.
+     */
+    void clear() {
+        if (components.length > MAXIMUM_RETAINED_CAPACITY) {
+            components = EMPTY_COMPONENT_ARRAY;
+        } else {
+            for (int i = 0; i < size; ++i) {
+                components[i] = null;
+            }
+        }
+        size = 0;
+        index = null;
+    }
+    
+    /**
+     * Determines if a component is a member.
+     * 
+     * @param component the <code>Component</code>
+     * @return true if the component is a member
+     */
+    boolean contains(Component component) {
+        return indexOf(component) != -1;
+    }
+    
+    /**
+     * Returns the member at the specified position.
+     * 
+     * @param position the position, from 0 to <code>size() - 1</code>
+     * @return the member
+     */
+    Component get(int position) {
+        if (position >= size) {
+            throw new IndexOutOfBoundsException("Index: " + position + ", Size: " + size);
+        }
+        return components[position];
+    }
+    
+    /**
+     * Returns the first hash index slot to probe for the specified component.
+     * 
+     * @param component the component
+     * @return the slot
+     */
+    private int hashSlot(Component component) {
+        return (System.identityHashCode(component) * 0x9E3779B9) >>> (32 - indexBits);
+    }
+    
+    /**
+     * Returns the position of a member.
+     * 
+     * @param component the <code>Component</code>
+     * @return the position, or -1 if the component is not a member
+     */
+    private int indexOf(Component component) {
+        if (size > INDEX_THRESHOLD) {
+            if (index == null) {
+                // Index is not serialized.
+                rebuildIndex();
+            }
+            int mask = index.length - 1;
+            for (int slot = hashSlot(component); index[slot] != 0; slot = (slot + 1) & mask) {
+                if (components[index[slot] - 1] == component) {
+                    return index[slot] - 1;
+                }
+            }
+            return -1;
+        } else {
+            for (int i = 0; i < size; ++i) {
+                if (components[i] == component) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+    
+    /**
+     * Inserts the member at the specified position into the hash index.
+     * 
+     * @param position the position
+     */
+    private void indexInsert(int position) {
+        int mask = index.length - 1;
+        int slot = hashSlot(components[position]);
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = position + 1;
+    }
+    
+    /**
+     * Removes the hash index entry referencing the specified position, shifting subsequent entries of the probe sequence 
+     * back to fill the vacated slot.
+     * 
+     * @param position the position
+     */
+    private void indexRemove(int position) {
+        int mask = index.length - 1;
+        int slot = hashSlot(components[position]);
+        while (index[slot] != position + 1) {
+            slot = (slot + 1) & mask;
+        }
+        int next = (slot + 1) & mask;
+        while (index[next] != 0) {
+            int home = hashSlot(components[index[next] - 1]);
+            // Move the entry at 'next' into the gap if its home slot does not lie cyclically within (slot, next].
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                index[slot] = index[next];
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+        index[slot] = 0;
+    }
+    
+    /**
+     * Updates the hash index entry of a member which is to be moved.  Must be invoked before the member array is modified.
+     * 
+     * @param oldPosition the previous position
+     * @param newPosition the new position
+     */
+    private void indexMove(int oldPosition, int newPosition) {
+        int mask = index.length - 1;
+        int slot = hashSlot(components[oldPosition]);
+        while (index[slot] != oldPosition + 1) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = newPosition + 1;
+    }
+    
+    /**
+     * Rebuilds the hash index with a capacity of at least four times the member count.
+     */
+    private void rebuildIndex() {
+        indexBits = 32 - Integer.numberOfLeadingZeros(size * 4 - 1);
+        index = new int[1 << indexBits];
+        for (int i = 0; i < size; ++i) {
+            indexInsert(i);
+        }
+    }
+    
+    /**
+     * Removes a member.
+     * 
+     * @param component the <code>Component</code> to remove
+     * @return true if the component was removed, false if it was not a member
+     */
+    boolean remove(Component component) {
+        int position = indexOf(component);
+        if (position == -1) {
+            return false;
+        }
+        int last = size - 1;
+        if (index != null) {
+            indexRemove(position);
+            if (position != last) {
+                indexMove(last, position);
+            }
+        }
+        components[position] = components[last];
+        components[last] = null;
+        size = last;
+        if (index != null && size <= INDEX_THRESHOLD) {
+            index = null;
+        }
+        return true;
+    }
+    
+    /**
+     * Returns the number of members.
+     * 
+     * @return the number of members
+     */
+    int size() {
+        return size;
+    }
+    
+    /**
+     * Returns a new array containing the members.
+     * 
+     * @return the array
+     */
+    Component[] toArray() {
+        Component[] array = new Component[size];
+        System.arraycopy(components, 0, array, 0, size);
+        return array;
+    }
+    
+    /**
+     * @see java.lang.Object#toString()
+     */
+    public String toString() {
+        StringBuffer out = new StringBuffer("[");
+        for (int i = 0; i < size; ++i) {
+            if (i > 0) {
+                out.append(", ");
+            }
+            out.append(components[i]);
+        }
+        out.append("]");
+        return out.toString();
+    }
+}
@@ -30,10 +30,7 @@
 package nextapp.echo.app.update;
 
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 
 import nextapp.echo.app.Component;
 
@@ -46,6 +43,16 @@ import nextapp.echo.app.Component;
  * Describes modifications to properties of the component.
  * Describes modifications to the <code>LayoutData</code> states of
  * children of the component.
+ * <p>
+ * Each category of change may be retrieved either as an array, or without
+ * allocation by index, e.g., <code>getAddedChildCount()</code> and 
+ * <code>getAddedChild()</code>.  Indices are only valid while the update is
+ * not modified.
+ * <p>
+ * <code>ServerComponentUpdate</code>s are recycled by the 
+ * <code>ServerUpdateManager</code>: an update (and any values retrieved 
+ * from it by index) is only valid until the <code>UpdateManager</code> is
+ * purged.
  */
 public class ServerComponentUpdate 
 implements Serializable {
@@ -56,23 +63,66 @@ implements Serializable {
     private static final Component[] EMPTY_COMPONENT_ARRAY = new Component[0];
     private static final String[] EMPTY_STRING_ARRAY = new String[0];
     
+    /** Initial capacity of property update storage. */
+    private static final int INITIAL_PROPERTY_CAPACITY = 4;
+    
+    /**
+     * Marker type for <code>UNKNOWN_ORIGINAL</code>, an enumeration such that
+     * the marker retains its identity on deserialization.
+     */
+    private enum UnknownValue { INSTANCE }
+    
+    /**
+     * Previous value stored for a property whose original value is unknown,
+     * such that updates to it are never cancelled.  Distinct from null, which
+     * is a known original value.  Reported as null.
+     */
+    private static final Object UNKNOWN_ORIGINAL = UnknownValue.INSTANCE;
+    
     /** The set of child <code>Component</code>s added to the <code>parent</code>. */
-    private Set addedChildren;
+    private ComponentSet addedChildren;
     
     /** The parent component represented in this <code>ServerComponentUpdate</code>. */
     private Component parent;
     
-    /**A mapping between property names of the <code>parent</code> component and <code>PropertyUpdate</code>s. */
-    private Map propertyUpdates;
+    /** The number of updated properties of the <code>parent</code> component. */
+    private int propertyCount;
+    
+    /** The names of updated properties of the <code>parent</code> component, in positions 0 through <code>propertyCount - 1</code>. */
+    private String[] propertyNames;
+    
+    /** The current values of updated properties, indexed as <code>propertyNames</code>. */
+    private Object[] propertyNewValues;
+    
+    /** The previous values of updated properties, indexed as <code>propertyNames</code>. */
+    private Object[] propertyOldValues;
     
     /** The set of child <code>Component</code>s removed from the <code>parent</code>. */
-    private Set removedChildren;
+    private ComponentSet removedChildren;
     
     /** The set of descendant <code>Component</code>s which are implicitly removed as they were children of removed children. */
-    private Set removedDescendants;
+    private ComponentSet removedDescendants;
 
     /** The set of child <code>Component</code>s whose <code>LayoutData</code> was updated. */
-    private Set updatedLayoutDataChildren;
+    private ComponentSet updatedLayoutDataChildren;
+
+    /**
+     * The nearest <code>ServerComponentUpdate</code> of an ancestor of the <code>parent</code>, or the update tree root.
+     * Maintained by the <code>ServerUpdateManager</code>.
+     */
+    ServerComponentUpdate treeParent;
+    
+    /**
+     * The child of the <code>treeParent</code>'s parent component from which the <code>parent</code> descends (or which is the
+     * <code>parent</code>).  Maintained by the <code>ServerUpdateManager</code>.
+     */
+    Component treeBranch;
+    
+    /**
+     * Mapping between child components of the <code>parent</code> and <code>Set</code>s of the nearest descendant
+     * <code>ServerComponentUpdate</code>s beneath each child.  Maintained by the <code>ServerUpdateManager</code>.
+     */
+    Map treeChildren;
     
     /**
      * Creates a new <code>ServerComponentUpdate</code> representing the given
@@ -92,7 +142,7 @@ implements Serializable {
      */
     public void addChild(Component child) {
         if (addedChildren == null) {
-            addedChildren = new HashSet();
+            addedChildren = new ComponentSet();
         }
         addedChildren.add(child);
     }
@@ -105,12 +155,9 @@ implements Serializable {
      * @param propertyName the property update to cancel
      */
     public void cancelUpdateProperty(String propertyName) {
-        if (propertyUpdates == null) {
-            return;
-        }
-        propertyUpdates.remove(propertyName);
-        if (propertyUpdates.size() == 0) {
-            propertyUpdates = null;
+        int index = indexOfProperty(propertyName);
+        if (index != -1) {
+            removeProperty(index);
         }
     }
     
@@ -125,34 +172,81 @@ implements Serializable {
      */
     public void appendRemovedDescendants(ServerComponentUpdate update) {
         // Append removed descendants.
-        if (update.removedDescendants != null) {
+        if (update.removedDescendants != null && update.removedDescendants.size() > 0) {
             if (removedDescendants == null) {
-                removedDescendants = new HashSet();
+                removedDescendants = new ComponentSet();
             }
             removedDescendants.addAll(update.removedDescendants);
         }
         // Append removed children.
-        if (update.removedChildren != null) {
+        if (update.removedChildren != null && update.removedChildren.size() > 0) {
             if (removedDescendants == null) {
-                removedDescendants = new HashSet();
+                removedDescendants = new ComponentSet();
             }
             removedDescendants.addAll(update.removedChildren);
         }
     }
     
+    /**
+     * Returns the added child component at the specified index.
+     * 
+     * @param index the index, from 0 to <code>getAddedChildCount() - 1</code>
+     * @return the added child component
+     * @see #getAddedChildCount()
+     */
+    public Component getAddedChild(int index) {
+        if (addedChildren == null) {
+            throw new IndexOutOfBoundsException();
+        }
+        return addedChildren.get(index);
+    }
+    
+    /**
+     * Returns the number of child components which have been added to the parent.
+     * 
+     * @return the number of added child components
+     */
+    public int getAddedChildCount() {
+        return addedChildren == null ? 0 : addedChildren.size();
+    }
+    
     /**
      * Returns the child components which have been added to the parent.
      * 
      * @return the added child components
      */
     public Component[] getAddedChildren() {
-        if (addedChildren == null) {
+        if (addedChildren == null || addedChildren.size() == 0) {
             return EMPTY_COMPONENT_ARRAY;
         } else {
-            return (Component[]) addedChildren.toArray(new Component[addedChildren.size()]);
+            return addedChildren.toArray();
         }
     }
     
+    /**
+     * Returns the number of distinct incremental changes described by the
+     * update, i.e., the number of updated properties, removed children, and
+     * children with updated <code>LayoutData</code>.  Repeated updates to the
+     * same property are counted once.
+     * 
+     * @return the number of incremental changes
+     */
+    int getIncrementalSize() {
+        return propertyCount + getRemovedChildCount() + getUpdatedLayoutDataChildCount();
+    }
+    
+    /**
+     * Returns the previous value of the updated property at the specified
+     * index, reporting an unknown original value as null.
+     * 
+     * @param index the index
+     * @return the previous value
+     */
+    private Object getOldValue(int index) {
+        Object oldValue = propertyOldValues[index];
+        return oldValue == UNKNOWN_ORIGINAL ? null : oldValue;
+    }
+    
     /**
      * Returns the parent component being updated.
      * 
@@ -162,6 +256,29 @@ implements Serializable {
         return parent;
     }
     
+    /**
+     * Returns the removed child component at the specified index.
+     * 
+     * @param index the index, from 0 to <code>getRemovedChildCount() - 1</code>
+     * @return the removed child component
+     * @see #getRemovedChildCount()
+     */
+    public Component getRemovedChild(int index) {
+        if (removedChildren == null) {
+            throw new IndexOutOfBoundsException();
+        }
+        return removedChildren.get(index);
+    }
+    
+    /**
+     * Returns the number of child components which have been removed from the parent.
+     * 
+     * @return the number of removed child components
+     */
+    public int getRemovedChildCount() {
+        return removedChildren == null ? 0 : removedChildren.size();
+    }
+    
     /**
      * Returns the child components which have been removed from the parent.
      * These components may or may not have ever been rendered by the container,
@@ -173,13 +290,38 @@ implements Serializable {
      * @see #getRemovedDescendants()
      */
     public Component[] getRemovedChildren() {
-        if (removedChildren == null) {
+        if (removedChildren == null || removedChildren.size() == 0) {
             return EMPTY_COMPONENT_ARRAY;
         } else {
-            return (Component[]) removedChildren.toArray(new Component[removedChildren.size()]);
+            return removedChildren.toArray();
         }
     }
     
+    /**
+     * Returns the removed descendant component at the specified index.
+     * 
+     * @param index the index, from 0 to <code>getRemovedDescendantCount() - 1</code>
+     * @return the removed descendant component
+     * @see #getRemovedDescendantCount()
+     */
+    public Component getRemovedDescendant(int index) {
+        if (removedDescendants == null) {
+            throw new IndexOutOfBoundsException();
+        }
+        return removedDescendants.get(index);
+    }
+    
+    /**
+     * Returns the number of descendants of the child components which have 
+     * been removed from the parent.
+     * 
+     * @return the number of removed descendant components
+     * @see #getRemovedDescendants()
+     */
+    public int getRemovedDescendantCount() {
+        return removedDescendants == null ? 0 : removedDescendants.size();
+    }
+    
     /**
      * Returns all descendants of the child components which have been 
      * removed from the parent.  This returned array DOES NOT contain the
@@ -193,13 +335,38 @@ implements Serializable {
      * @see #getRemovedChildren()
      */
     public Component[] getRemovedDescendants() {
-        if (removedDescendants == null) {
+        if (removedDescendants == null || removedDescendants.size() == 0) {
             return EMPTY_COMPONENT_ARRAY;
         } else {
-            return (Component[]) removedDescendants.toArray(new Component[removedDescendants.size()]);
+            return removedDescendants.toArray();
         }
     }
     
+    /**
+     * Returns the child component whose <code>LayoutData</code> property has
+     * been updated at the specified index.
+     * 
+     * @param index the index, from 0 to <code>getUpdatedLayoutDataChildCount() - 1</code>
+     * @return the changed child component
+     * @see #getUpdatedLayoutDataChildCount()
+     */
+    public Component getUpdatedLayoutDataChild(int index) {
+        if (updatedLayoutDataChildren == null) {
+            throw new IndexOutOfBoundsException();
+        }
+        return updatedLayoutDataChildren.get(index);
+    }
+    
+    /**
+     * Returns the number of child components whose <code>LayoutData</code>
+     * properties have been updated.
+     * 
+     * @return the number of changed child components
+     */
+    public int getUpdatedLayoutDataChildCount() {
+        return updatedLayoutDataChildren == null ? 0 : updatedLayoutDataChildren.size();
+    }
+    
     /**
      * Returns the child components whose <code>LayoutData</code> properties
      * have been updated.
@@ -207,23 +374,47 @@ implements Serializable {
      * @return the changed child components
      */
     public Component[] getUpdatedLayoutDataChildren() {
-        if (updatedLayoutDataChildren == null) {
+        if (updatedLayoutDataChildren == null || updatedLayoutDataChildren.size() == 0) {
             return EMPTY_COMPONENT_ARRAY;
         } else {
-            return (Component[]) updatedLayoutDataChildren.toArray(new Component[updatedLayoutDataChildren.size()]);
+            return updatedLayoutDataChildren.toArray();
         }
     }
     
     /**
      * Returns a <code>PropertyUpdate</code> describing an update to the
      * property with the given <code>name</code>.
+     * The indexed accessors (e.g., <code>getUpdatedPropertyNewValue()</code>)
+     * may be used to retrieve the same information without allocation.
      * 
      * @param name the name of the property being updated
      * @return the <code>PropertyUpdate</code>, or null if none exists
      * @see #getUpdatedPropertyNames() 
      */
     public PropertyUpdate getUpdatedProperty(String name) {
-        return propertyUpdates == null ? null : (PropertyUpdate) propertyUpdates.get(name);
+        int index = indexOfProperty(name);
+        return index == -1 ? null : new PropertyUpdate(getOldValue(index), propertyNewValues[index]);
+    }
+    
+    /**
+     * Returns the number of properties being updated in this update.
+     * 
+     * @return the number of updated properties
+     */
+    public int getUpdatedPropertyCount() {
+        return propertyCount;
+    }
+    
+    /**
+     * Returns the name of the updated property at the specified index.
+     * 
+     * @param index the index, from 0 to <code>getUpdatedPropertyCount() - 1</code>
+     * @return the property name
+     * @see #getUpdatedPropertyCount()
+     */
+    public String getUpdatedPropertyName(int index) {
+        checkPropertyIndex(index);
+        return propertyNames[index];
     }
     
     /**
@@ -233,13 +424,39 @@ implements Serializable {
      * @see #getUpdatedPropertyNames() 
      */
     public String[] getUpdatedPropertyNames() {
-        if (propertyUpdates == null) {
+        if (propertyCount == 0) {
             return EMPTY_STRING_ARRAY;
         } else {
-            return (String[]) propertyUpdates.keySet().toArray(new String[propertyUpdates.size()]);
+            String[] names = new String[propertyCount];
+            System.arraycopy(propertyNames, 0, names, 0, propertyCount);
+            return names;
         }
     }
     
+    /**
+     * Returns the new value of the updated property at the specified index.
+     * 
+     * @param index the index, from 0 to <code>getUpdatedPropertyCount() - 1</code>
+     * @return the new value
+     * @see #getUpdatedPropertyCount()
+     */
+    public Object getUpdatedPropertyNewValue(int index) {
+        checkPropertyIndex(index);
+        return propertyNewValues[index];
+    }
+    
+    /**
+     * Returns the previous value of the updated property at the specified index.
+     * 
+     * @param index the index, from 0 to <code>getUpdatedPropertyCount() - 1</code>
+     * @return the previous value
+     * @see #getUpdatedPropertyCount()
+     */
+    public Object getUpdatedPropertyOldValue(int index) {
+        checkPropertyIndex(index);
+        return getOldValue(index);
+    }
+    
     /**
      * Determines if the specified component has been added 
      * as a child in this update.
@@ -257,7 +474,7 @@ implements Serializable {
      * @return true if children are being added
      */
     public boolean hasAddedChildren() {
-        return addedChildren != null;
+        return addedChildren != null && addedChildren.size() > 0;
     }
     
     /**
@@ -277,7 +494,7 @@ implements Serializable {
      * @return true if children are being removed
      */
     public boolean hasRemovedChildren() {
-        return removedChildren != null;
+        return removedChildren != null && removedChildren.size() > 0;
     }
     
     /**
@@ -301,7 +518,7 @@ implements Serializable {
      * @return true if descendants are being removed
      */
     public boolean hasRemovedDescendants() {
-        return removedDescendants != null;
+        return removedDescendants != null && removedDescendants.size() > 0;
     }
     
     /**
@@ -311,7 +528,7 @@ implements Serializable {
      * @return true if <code>LayoutData</code> properties are being updated
      */
     public boolean hasUpdatedLayoutDataChildren() {
-        return updatedLayoutDataChildren != null;
+        return updatedLayoutDataChildren != null && updatedLayoutDataChildren.size() > 0;
     }
     
     /**
@@ -320,7 +537,7 @@ implements Serializable {
      * @return true if properties are being updated
      */
     public boolean hasUpdatedProperties() {
-        return propertyUpdates != null;
+        return propertyCount > 0;
     }
     
     /**
@@ -330,7 +547,34 @@ implements Serializable {
      * @return true if the specified property is being updated
      */
     public boolean hasUpdatedProperty(String propertyName) {
-        return propertyUpdates != null && propertyUpdates.containsKey(propertyName);
+        return indexOfProperty(propertyName) != -1;
+    }
+    
+    /**
+     * Verifies that an index of an updated property is valid.
+     * 
+     * @param index the index
+     * @throws IndexOutOfBoundsException if the index is not valid
+     */
+    private void checkPropertyIndex(int index) {
+        if (index < 0 || index >= propertyCount) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + propertyCount);
+        }
+    }
+    
+    /**
+     * Returns the index of an updated property.
+     * 
+     * @param propertyName the property name
+     * @return the index, or -1 if the property is not being updated
+     */
+    private int indexOfProperty(String propertyName) {
+        for (int i = 0; i < propertyCount; ++i) {
+            if (propertyNames[i] == propertyName || propertyNames[i].equals(propertyName)) {
+                return i;
+            }
+        }
+        return -1;
     }
     
     /**
@@ -340,22 +584,21 @@ implements Serializable {
      * @param child the child being removed
      */
     public void removeChild(Component child) {
-        if (addedChildren != null && addedChildren.contains(child)) {
+        if (addedChildren != null) {
             // Remove child from add list if found.
             addedChildren.remove(child);
         }
-        if (updatedLayoutDataChildren != null && updatedLayoutDataChildren.contains(child)) {
+        if (updatedLayoutDataChildren != null) {
             // Remove child from updated layout data list if found.
             updatedLayoutDataChildren.remove(child);
         }
         if (removedChildren == null) {
-            removedChildren = new HashSet();
+            removedChildren = new ComponentSet();
         }
         removedChildren.add(child);
         
-        Component[] descendants = child.getComponents();
-        for (int i = 0; i < descendants.length; ++i) {
-            removeDescendant(descendants[i]);
+        for (int i = child.getComponentCount() - 1; i >= 0; --i) {
+            removeDescendant(child.getComponent(i));
         }
     }
     
@@ -367,15 +610,62 @@ implements Serializable {
      */
     public void removeDescendant(Component descendant) {
         if (removedDescendants == null) {
-            removedDescendants = new HashSet();
+            removedDescendants = new ComponentSet();
         }
         removedDescendants.add(descendant);
-        Component[] descendants = descendant.getComponents();
-        for (int i = 0; i < descendants.length; ++i) {
-            removeDescendant(descendants[i]);
+        for (int i = descendant.getComponentCount() - 1; i >= 0; --i) {
+            removeDescendant(descendant.getComponent(i));
         }
     }
     
+    /**
+     * Removes the updated property at the specified index, moving the last
+     * updated property into its position.
+     * 
+     * @param index the index
+     */
+    private void removeProperty(int index) {
+        int last = propertyCount - 1;
+        propertyNames[index] = propertyNames[last];
+        propertyOldValues[index] = propertyOldValues[last];
+        propertyNewValues[index] = propertyNewValues[last];
+        propertyNames[last] = null;
+        propertyOldValues[last] = null;
+        propertyNewValues[last] = null;
+        propertyCount = last;
+    }
+    
+    /**
+     * Clears the update such that it may be reused to describe an update to
+     * another component.  Storage is retained where practical.
+     * 
+     * @param parent the new parent component
+     */
+    void reset(Component parent) {
+        this.parent = parent;
+        if (addedChildren != null) {
+            addedChildren.clear();
+        }
+        if (removedChildren != null) {
+            removedChildren.clear();
+        }
+        if (removedDescendants != null) {
+            removedDescendants.clear();
+        }
+        if (updatedLayoutDataChildren != null) {
+            updatedLayoutDataChildren.clear();
+        }
+        for (int i = 0; i < propertyCount; ++i) {
+            propertyNames[i] = null;
+            propertyOldValues[i] = null;
+            propertyNewValues[i] = null;
+        }
+        propertyCount = 0;
+        treeParent = null;
+        treeBranch = null;
+        treeChildren = null;
+    }
+    
     /**
      * Display debug representation.
      * 
@@ -389,7 +679,14 @@ implements Serializable {
         out.append("- Removes: " + removedChildren + "\n");
         out.append("- DescendantRemoves: " + removedDescendants + "\n");
         out.append("- ChildLayoutDataUpdates: " + updatedLayoutDataChildren + "\n");
-        out.append("- PropertyUpdates: " + propertyUpdates + "\n");
+        out.append("- PropertyUpdates: {");
+        for (int i = 0; i < propertyCount; ++i) {
+            if (i > 0) {
+                out.append(", ");
+            }
+            out.append(propertyNames[i] + "=" + getOldValue(i) + "->" + propertyNewValues[i]);
+        }
+        out.append("}\n");
         return out.toString();
     }
     
@@ -402,7 +699,7 @@ implements Serializable {
      */
     public void updateLayoutData(Component child) {
         if (updatedLayoutDataChildren == null) {
-            updatedLayoutDataChildren = new HashSet();
+            updatedLayoutDataChildren = new ComponentSet();
         }
         updatedLayoutDataChildren.add(child);
     }
@@ -410,16 +707,55 @@ implements Serializable {
     /**
      * Adds a description of an update to a property of the parent component 
      * to the <code>ServerComponentUpdate</code>.
+     * <p>
+     * Successive updates to the same property are coalesced, retaining the
+     * previous value of the first update.  If the property is returned to 
+     * that original value (including an original value of null), the update
+     * is cancelled, as the client state is already correct.  An update whose previous and new values are both null
+     * (indicating a change which is not described by values, e.g., to an 
+     * indexed property) discards the original value, such that the update
+     * will not be cancelled.
      * 
      * @param propertyName the name of the property
      * @param oldValue the previous value of the property
      * @param newValue the current value of the property
      */
     public void updateProperty(String propertyName, Object oldValue, Object newValue) {
-        if (propertyUpdates == null) {
-            propertyUpdates = new HashMap();
+        int index = indexOfProperty(propertyName);
+        if (index == -1) {
+            if (propertyNames == null) {
+                propertyNames = new String[INITIAL_PROPERTY_CAPACITY];
+                propertyOldValues = new Object[INITIAL_PROPERTY_CAPACITY];
+                propertyNewValues = new Object[INITIAL_PROPERTY_CAPACITY];
+            } else if (propertyCount == propertyNames.length) {
+                int newCapacity = propertyCount * 2;
+                String[] newNames = new String[newCapacity];
+                Object[] newOldValues = new Object[newCapacity];
+                Object[] newNewValues = new Object[newCapacity];
+                System.arraycopy(propertyNames, 0, newNames, 0, propertyCount);
+                System.arraycopy(propertyOldValues, 0, newOldValues, 0, propertyCount);
+                System.arraycopy(propertyNewValues, 0, newNewValues, 0, propertyCount);
+                propertyNames = newNames;
+                propertyOldValues = newOldValues;
+                propertyNewValues = newNewValues;
+            }
+            index = propertyCount++;
+            propertyNames[index] = propertyName;
+            propertyOldValues[index] = oldValue == null && newValue == null ? UNKNOWN_ORIGINAL : oldValue;
+            propertyNewValues[index] = newValue;
+            return;
+        }
+        
+        Object originalValue = propertyOldValues[index];
+        if (oldValue == null && newValue == null) {
+            // Original value is no longer meaningful.
+            propertyOldValues[index] = UNKNOWN_ORIGINAL;
+        } else if (originalValue != UNKNOWN_ORIGINAL 
+                && (originalValue == null ? newValue == null : originalValue.equals(newValue))) {
+            // Property has returned to its original value.
+            removeProperty(index);
+            return;
         }
-        PropertyUpdate propertyUpdate = new PropertyUpdate(oldValue, newValue);
-        propertyUpdates.put(propertyName, propertyUpdate);
+        propertyNewValues[index] = newValue;
     }
 }
@@ -33,11 +33,14 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Comparator;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import nextapp.echo.app.ApplicationInstance;
 import nextapp.echo.app.Command;
@@ -53,45 +56,15 @@ implements Serializable {
     /** Serial Version UID. */
     private static final long serialVersionUID = 20070101L;
 
-    /**
-     * <code>Comparator</code> to sort components by their depth in the 
-     * hierarchy.
-     */
-    private static final Comparator hierarchyDepthUpdateComparator = new Comparator() {
-
-        /**
-         * @see java.util.Comparator#compare(java.lang.Object, java.lang.Object)
-         */
-        public int compare(Object a, Object b) {
-            return getDepth(((ServerComponentUpdate) a).getParent()) - getDepth(((ServerComponentUpdate) b).getParent());
-        }
-        
-        /**
-         * @see java.lang.Object#equals(java.lang.Object)
-         */
-        public boolean equals(Object o) {
-            return false;
-        }
-        
-        /**
-         * Returns the depth of the specified component in the hierarchy.
-         * 
-         * @param component the component
-         * @return the depth
-         */
-        private int getDepth(Component component) {
-            int count = 0;
-            while (component != null) {
-                component = component.getParent();
-                ++count;
-            }
-            return count;
-        }
-    };
-    
     /** Empty array of commands. */
     private static final Command[] EMPTY_COMMAND_ARRAY = new Command[0];
     
+    /** Minimum estimated update cost at which pending updates may be escalated to a full refresh. */
+    private static final int MINIMUM_FULL_REFRESH_ESCALATION_COST = 100;
+    
+    /** Maximum number of <code>ServerComponentUpdate</code>s retained for reuse when the manager is purged. */
+    private static final int MAXIMUM_POOLED_UPDATE_COUNT = 256;
+    
     /** Map between application property names and <code>PropertyUpdate</code>s to the application. */
     private Map applicationUpdateMap;
     
@@ -113,9 +86,41 @@ implements Serializable {
     /** The updating <code>ApplicationInstance</code>. */
     private ApplicationInstance applicationInstance;
     
+    /**
+     * Root of the tree of <code>ServerComponentUpdate</code>s, in which each update is a child of the update of its nearest
+     * updated ancestor component, indexed by the branch of the hierarchy in which it resides.  Enables the updates within
+     * a removed hierarchy to be found without examining every update.
+     */
+    private ServerComponentUpdate updateTreeRoot;
+    
+    /**
+     * Set of <code>Component</code>s which are being added in the current synchronization, i.e., the added children of all
+     * <code>ServerComponentUpdate</code>s and their descendants.  Used to determine in constant time whether a component is
+     * within a freshly added hierarchy, in which case it will be rendered in its entirety.
+     */
+    private Set addedComponents;
+    
     /** Cache of <code>ServerComponentUpdate</code>s (returned by multiple invocations of <code>getComponentUpdates()</code>.) */
     private ServerComponentUpdate[] cachedComponentUpdates;
     
+    /** 
+     * Ratio of estimated update cost to registered component count above which pending updates are escalated to a full
+     * refresh, or zero if updates should never be escalated.
+     */
+    private float fullRefreshRatio;
+    
+    /** Listener notified when pending updates are escalated to a full refresh. */
+    private FullRefreshEscalationListener fullRefreshEscalationListener;
+    
+    /** 
+     * The sum of the incremental sizes of all pending <code>ServerComponentUpdate</code>s, i.e., the number of distinct
+     * pending property, <code>LayoutData</code>, and child removal updates.
+     */
+    private int incrementalUpdateSize;
+    
+    /** <code>ServerComponentUpdate</code>s retained from previous synchronizations for reuse. */
+    private transient List updatePool;
+    
     /**
      * Creates a new <code>ServerUpdateManager</code>.
      * 
@@ -130,9 +135,57 @@ implements Serializable {
         this.applicationInstance = applicationInstance;
         applicationUpdateMap = new HashMap();
         componentUpdateMap = new HashMap();
+        addedComponents = Collections.newSetFromMap(new IdentityHashMap());
+        updateTreeRoot = new ServerComponentUpdate(null);
         fullRefreshUpdate = new ServerComponentUpdate(null);
     }
     
+    /**
+     * Adds a <code>ServerComponentUpdate</code> as a child of another in the update tree.
+     * 
+     * @param treeParent the parent <code>ServerComponentUpdate</code>
+     * @param branch the child of <code>treeParent</code>'s component from which the child update's component descends
+     * @param update the child <code>ServerComponentUpdate</code>
+     */
+    private void addTreeChild(ServerComponentUpdate treeParent, Component branch, ServerComponentUpdate update) {
+        if (treeParent.treeChildren == null) {
+            treeParent.treeChildren = new HashMap();
+        }
+        Set children = (Set) treeParent.treeChildren.get(branch);
+        if (children == null) {
+            children = new HashSet();
+            treeParent.treeChildren.put(branch, children);
+        }
+        children.add(update);
+        update.treeParent = treeParent;
+        update.treeBranch = branch;
+    }
+    
+    /**
+     * Escalates pending updates to a full refresh if their estimated cost exceeds the configured ratio to the number of
+     * registered components.  The estimated cost is the number of components being added (each of which must be rendered
+     * in its entirety) plus the number of distinct pending property, <code>LayoutData</code>, and child removal updates.
+     * 
+     * @see #setFullRefreshRatio(float)
+     */
+    private void checkUpdateCost() {
+        if (fullRefreshRatio <= 0) {
+            return;
+        }
+        int updateCost = addedComponents.size() + incrementalUpdateSize;
+        if (updateCost < MINIMUM_FULL_REFRESH_ESCALATION_COST) {
+            return;
+        }
+        int componentCount = applicationInstance.getRegisteredComponentCount();
+        if (updateCost <= fullRefreshRatio * componentCount) {
+            return;
+        }
+        processFullRefresh();
+        if (fullRefreshEscalationListener != null) {
+            fullRefreshEscalationListener.fullRefreshEscalated(updateCost, componentCount);
+        }
+    }
+    
     /**
      * Creates or retrieves a <code>ComponentUpdate</code> for the given
      * parent component.  If a <code>ComponentUpdate</code> is created, it
@@ -148,8 +201,14 @@ implements Serializable {
         if (componentUpdateMap.containsKey(parent)) {
             update = (ServerComponentUpdate) componentUpdateMap.get(parent);
         } else {
-            update = new ServerComponentUpdate(parent);
+            if (updatePool == null || updatePool.isEmpty()) {
+                update = new ServerComponentUpdate(parent);
+            } else {
+                update = (ServerComponentUpdate) updatePool.remove(updatePool.size() - 1);
+                update.reset(parent);
+            }
             componentUpdateMap.put(parent, update);
+            linkUpdate(update);
         }
         return update;
     }
@@ -177,7 +236,16 @@ implements Serializable {
     public PropertyUpdate getApplicationPropertyUpdate(String propertyName) {
         return (PropertyUpdate) applicationUpdateMap.get(propertyName);
     }
-    
+
+    /**
+     * Returns the names of all updated application-level properties.
+     *
+     * @return the property names
+     */
+    String[] getApplicationPropertyUpdateNames() {
+        return (String[]) applicationUpdateMap.keySet().toArray(new String[applicationUpdateMap.size()]);
+    }
+
     /**
      * Returns the stored <code>Command</code>s.  The commands
      * are NOT removed or modified by this call.  
@@ -208,7 +276,7 @@ implements Serializable {
                 Collection hierarchyUpdates = componentUpdateMap.values();
                 cachedComponentUpdates = (ServerComponentUpdate[])
                          hierarchyUpdates.toArray(new ServerComponentUpdate[hierarchyUpdates.size()]);
-                Arrays.sort(cachedComponentUpdates, hierarchyDepthUpdateComparator);
+                sortByDepth(cachedComponentUpdates);
                 return cachedComponentUpdates;
             } else {
                 return cachedComponentUpdates;
@@ -216,6 +284,27 @@ implements Serializable {
         }
     }
     
+    /**
+     * Returns the listener notified when pending updates are escalated to a
+     * full refresh.
+     * 
+     * @return the listener, or null if none is set
+     */
+    public FullRefreshEscalationListener getFullRefreshEscalationListener() {
+        return fullRefreshEscalationListener;
+    }
+    
+    /**
+     * Returns the ratio of estimated update cost to registered component count
+     * above which pending updates are escalated to a full refresh.
+     * 
+     * @return the ratio, or zero if updates are never escalated
+     * @see #setFullRefreshRatio(float)
+     */
+    public float getFullRefreshRatio() {
+        return fullRefreshRatio;
+    }
+    
     /**
      * Initialization life-cycle method.  Must be invoked before using 
      * the <code>ServerUpdateManager</code>.
@@ -228,25 +317,13 @@ implements Serializable {
     }
     
     /**
-     * Determines if an ancestor of the given component is being added.
+     * Determines if the given component or an ancestor of it is being added.
      * 
      * @param component the <code>Component</code> to investigate
-     * @return true if an ancestor of the component is being added
+     * @return true if the component or an ancestor of the component is being added
      */
     private boolean isAncestorBeingAdded(Component component) {
-        Component child = component;
-        Component parent = component.getParent();
-        while (parent != null) {
-            ServerComponentUpdate update = (ServerComponentUpdate) componentUpdateMap.get(parent);
-            if (update != null) {
-                if (update.hasAddedChild(child)) {
-                    return true;
-                }
-            }
-            child = parent;
-            parent = parent.getParent();
-        }
-        return false;
+        return addedComponents.contains(component);
     }
     
     /**
@@ -267,6 +344,58 @@ implements Serializable {
         return fullRefreshUpdate != null;
     }
     
+    /**
+     * Inserts a newly created <code>ServerComponentUpdate</code> into the update tree beneath the update of its nearest 
+     * updated ancestor, adopting any existing updates of descendant components from that ancestor.
+     * 
+     * @param update the new <code>ServerComponentUpdate</code>
+     */
+    private void linkUpdate(ServerComponentUpdate update) {
+        Component component = update.getParent();
+        
+        // Find nearest updated ancestor, and the branch of its hierarchy containing the updated component.
+        Component branch = component;
+        Component ancestor = component.getParent();
+        while (ancestor != null && !componentUpdateMap.containsKey(ancestor)) {
+            branch = ancestor;
+            ancestor = ancestor.getParent();
+        }
+        ServerComponentUpdate treeParent = ancestor == null 
+                ? updateTreeRoot : (ServerComponentUpdate) componentUpdateMap.get(ancestor);
+
+        // Adopt updates of descendants.
+        Set siblings = treeParent.treeChildren == null ? null : (Set) treeParent.treeChildren.get(branch);
+        if (siblings != null) {
+            Iterator it = siblings.iterator();
+            while (it.hasNext()) {
+                ServerComponentUpdate sibling = (ServerComponentUpdate) it.next();
+                Component siblingBranch = sibling.getParent();
+                Component siblingAncestor = siblingBranch.getParent();
+                while (siblingAncestor != null && siblingAncestor != component) {
+                    siblingBranch = siblingAncestor;
+                    siblingAncestor = siblingAncestor.getParent();
+                }
+                if (siblingAncestor == component) {
+                    it.remove();
+                    addTreeChild(update, siblingBranch, sibling);
+                }
+            }
+        }
+        addTreeChild(treeParent, branch, update);
+    }
+    
+    /**
+     * Records a component and its descendants as being added.
+     * 
+     * @param component the added <code>Component</code>
+     */
+    private void markAdded(Component component) {
+        addedComponents.add(component);
+        for (int i = component.getComponentCount() - 1; i >= 0; --i) {
+            markAdded(component.getComponent(i));
+        }
+    }
+    
     /**
      * Processes an update to a property of the <code>ApplicationInstance</code>.
      * 
@@ -295,10 +424,11 @@ implements Serializable {
         if (isFullRefreshRequired()) {
             return;
         }
-        if (!child.isRenderVisible()) {
+        if (isAncestorBeingAdded(parent)) {
+            markAdded(child);
             return;
         }
-        if (isAncestorBeingAdded(child)) {
+        if (!child.isRenderVisible()) {
             return;
         }
         
@@ -306,6 +436,47 @@ implements Serializable {
 
         ServerComponentUpdate update = createComponentUpdate(parent);
         update.addChild(child);
+        markAdded(child);
+        checkUpdateCost();
+    }
+    
+    /**
+     * Processes the addition of multiple components to the hierarchy, as
+     * performed by <code>Component.addAll()</code>.
+     * Creates/updates a <code>ServerComponentUpdate</code> if required.
+     * 
+     * @param parent a component which currently exists in the hierarchy
+     * @param children the components which were added to <code>parent</code>
+     */
+    public void processComponentsAdd(Component parent, Component[] children) {
+        if (isFullRefreshRequired()) {
+            return;
+        }
+        if (isAncestorBeingAdded(parent)) {
+            for (int i = 0; i < children.length; ++i) {
+                markAdded(children[i]);
+            }
+            return;
+        }
+        if (!parent.isRenderVisible()) {
+            return;
+        }
+        
+        ServerComponentUpdate update = null;
+        for (int i = 0; i < children.length; ++i) {
+            if (!children[i].isVisible()) {
+                continue;
+            }
+            if (update == null) {
+                cachedComponentUpdates = null;
+                update = createComponentUpdate(parent);
+            }
+            update.addChild(children[i]);
+            markAdded(children[i]);
+        }
+        if (update != null) {
+            checkUpdateCost();
+        }
     }
     
     /**
@@ -331,7 +502,10 @@ implements Serializable {
             return;
         }
         ServerComponentUpdate update = createComponentUpdate(parentComponent);
+        int size = update.getIncrementalSize();
         update.updateLayoutData(updatedComponent);
+        incrementalUpdateSize += update.getIncrementalSize() - size;
+        checkUpdateCost();
     }
     
     /**
@@ -367,7 +541,9 @@ implements Serializable {
                 if (inputValue == newValue || (inputValue != null && inputValue.equals(newValue))) {
                     ServerComponentUpdate update = (ServerComponentUpdate) componentUpdateMap.get(updatedComponent);
                     if (update != null) {
+                        int size = update.getIncrementalSize();
                         update.cancelUpdateProperty(propertyName);
+                        incrementalUpdateSize += update.getIncrementalSize() - size;
                     }
                     return;
                 }
@@ -375,7 +551,10 @@ implements Serializable {
         }
         
         ServerComponentUpdate update = createComponentUpdate(updatedComponent);
+        int size = update.getIncrementalSize();
         update.updateProperty(propertyName, oldValue, newValue);
+        incrementalUpdateSize += update.getIncrementalSize() - size;
+        checkUpdateCost();
     }
 
     /**
@@ -398,21 +577,55 @@ implements Serializable {
         
         cachedComponentUpdates = null;
         
+        boolean newUpdate = !componentUpdateMap.containsKey(parent);
         ServerComponentUpdate update = createComponentUpdate(parent);
+        int size = update.getIncrementalSize();
         update.removeChild(child);
+        if (isAncestorBeingAdded(child)) {
+            unmarkAdded(child);
+        }
         
-        // Search updated components for descendants of removed component.
-        // Any found descendants will be removed and added to this update's 
-        // list of removed descendants.
-        Iterator it = componentUpdateMap.keySet().iterator();
-        while (it.hasNext()) {
-            Component testComponent = (Component) it.next();
-            if (child.isAncestorOf(testComponent)) {
-                ServerComponentUpdate childUpdate = (ServerComponentUpdate) componentUpdateMap.get(testComponent);
-                update.appendRemovedDescendants(childUpdate);
-                it.remove();
+        // Remove updates of descendants of removed component, adding them to this update's list of removed descendants.
+        removeDescendantUpdates(update, new Component[] { child }, newUpdate);
+        incrementalUpdateSize += update.getIncrementalSize() - size;
+        checkUpdateCost();
+    }
+    
+    /**
+     * Processes the removal of multiple components from the hierarchy, as
+     * performed by <code>Component.removeAll()</code>.
+     * Creates/updates a <code>ServerComponentUpdate</code> if required.
+     * 
+     * @param parent a component which currently exists in the hierarchy
+     * @param children the components which were removed from <code>parent</code>
+     */
+    public void processComponentsRemove(Component parent, Component[] children) {
+        if (isFullRefreshRequired()) {
+            return;
+        }
+        if (!parent.isRenderVisible()) {
+            return;
+        }
+        if (isAncestorBeingAdded(parent)) {
+            return;
+        }
+        
+        cachedComponentUpdates = null;
+        
+        boolean newUpdate = !componentUpdateMap.containsKey(parent);
+        ServerComponentUpdate update = createComponentUpdate(parent);
+        int size = update.getIncrementalSize();
+        for (int i = 0; i < children.length; ++i) {
+            update.removeChild(children[i]);
+            if (isAncestorBeingAdded(children[i])) {
+                unmarkAdded(children[i]);
             }
         }
+
+        // Remove updates of descendants of removed components, adding them to this update's list of removed descendants.
+        removeDescendantUpdates(update, children, newUpdate);
+        incrementalUpdateSize += update.getIncrementalSize() - size;
+        checkUpdateCost();
     }
     
     /**
@@ -445,6 +658,8 @@ implements Serializable {
         cachedComponentUpdates = null;
 
         fullRefreshUpdate = new ServerComponentUpdate(null);
+        addedComponents.clear();
+        incrementalUpdateSize = 0;
 
         if (applicationInstance.getDefaultWindow() != null) {
             // Default window may be null if an operation is invoked from within the
@@ -459,18 +674,203 @@ implements Serializable {
             fullRefreshUpdate.appendRemovedDescendants(childUpdate);
             it.remove();
         }
+        updateTreeRoot.treeChildren = null;
     }
     
     /**
      * Removes all <code>ServerComponentUpdate</code>s from the manager,
      * resetting its state to zero.  This method is invoked by the
      * container once it has retrieved and processed all available updates.
+     * Removed <code>ServerComponentUpdate</code>s are recycled, and must not
+     * be used by the container after this method is invoked.
      */
     void purge() {
         applicationUpdateMap.clear();
+        
+        // Retain updates for reuse.
+        if (componentUpdateMap.size() > 0) {
+            if (updatePool == null) {
+                updatePool = new ArrayList();
+            }
+            Iterator it = componentUpdateMap.values().iterator();
+            while (it.hasNext() && updatePool.size() < MAXIMUM_POOLED_UPDATE_COUNT) {
+                ServerComponentUpdate update = (ServerComponentUpdate) it.next();
+                update.reset(null);
+                updatePool.add(update);
+            }
+        }
+        
         componentUpdateMap.clear();
+        updateTreeRoot.treeChildren = null;
+        addedComponents.clear();
+        incrementalUpdateSize = 0;
         commands = null;
         fullRefreshUpdate = null;
         cachedComponentUpdates = null;
     }
+    
+    /**
+     * Removes the <code>ServerComponentUpdate</code>s of removed components and their descendants, appending their removed
+     * descendants to the update of the parent from which the components were removed.
+     * 
+     * @param update the <code>ServerComponentUpdate</code> of the parent
+     * @param children the removed child components
+     * @param newUpdate flag indicating whether <code>update</code> was created for the removal, in which case updates within
+     *        the removed hierarchies will not have been adopted by it, and must be found amongst its siblings 
+     */
+    private void removeDescendantUpdates(ServerComponentUpdate update, Component[] children, boolean newUpdate) {
+        if (update.treeChildren != null) {
+            for (int i = 0; i < children.length; ++i) {
+                Set descendantUpdates = (Set) update.treeChildren.remove(children[i]);
+                if (descendantUpdates != null) {
+                    removeUpdateSubtrees(update, descendantUpdates);
+                }
+            }
+        }
+        
+        if (newUpdate) {
+            Set removedSet = Collections.newSetFromMap(new IdentityHashMap(children.length));
+            removedSet.addAll(Arrays.asList(children));
+            Iterator it = ((Set) update.treeParent.treeChildren.get(update.treeBranch)).iterator();
+            while (it.hasNext()) {
+                ServerComponentUpdate sibling = (ServerComponentUpdate) it.next();
+                Component root = sibling.getParent();
+                while (root.getParent() != null) {
+                    root = root.getParent();
+                }
+                if (removedSet.contains(root)) {
+                    it.remove();
+                    removeUpdateSubtree(update, sibling);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Removes a <code>ServerComponentUpdate</code> and its descendants in the update tree, appending their removed 
+     * descendants to another update.
+     * 
+     * @param update the <code>ServerComponentUpdate</code> to which removed descendants should be appended
+     * @param descendantUpdate the <code>ServerComponentUpdate</code> to remove
+     */
+    private void removeUpdateSubtree(ServerComponentUpdate update, ServerComponentUpdate descendantUpdate) {
+        update.appendRemovedDescendants(descendantUpdate);
+        componentUpdateMap.remove(descendantUpdate.getParent());
+        incrementalUpdateSize -= descendantUpdate.getIncrementalSize();
+        if (descendantUpdate.treeChildren != null) {
+            Iterator it = descendantUpdate.treeChildren.values().iterator();
+            while (it.hasNext()) {
+                removeUpdateSubtrees(update, (Set) it.next());
+            }
+        }
+    }
+    
+    /**
+     * Removes a <code>Set</code> of <code>ServerComponentUpdate</code>s and their descendants in the update tree, appending 
+     * their removed descendants to another update.
+     * 
+     * @param update the <code>ServerComponentUpdate</code> to which removed descendants should be appended
+     * @param descendantUpdates the <code>ServerComponentUpdate</code>s to remove
+     */
+    private void removeUpdateSubtrees(ServerComponentUpdate update, Set descendantUpdates) {
+        Iterator it = descendantUpdates.iterator();
+        while (it.hasNext()) {
+            removeUpdateSubtree(update, (ServerComponentUpdate) it.next());
+        }
+    }
+    
+    /**
+     * Sets the listener notified when pending updates are escalated to a
+     * full refresh, e.g., such that a container may log the event.
+     * 
+     * @param newValue the new listener, or null
+     */
+    public void setFullRefreshEscalationListener(FullRefreshEscalationListener newValue) {
+        fullRefreshEscalationListener = newValue;
+    }
+    
+    /**
+     * Sets the ratio of estimated update cost to registered component count
+     * above which pending updates are automatically escalated to a full 
+     * refresh.  When a synchronization touches most of the hierarchy, a full
+     * refresh may be smaller and faster for the client to apply than the 
+     * individual updates.  The estimated cost is the number of components 
+     * being added plus the number of distinct pending property, 
+     * <code>LayoutData</code>, and child removal updates, such that repeated
+     * or cancelled updates of a property do not contribute to it; small update
+     * sets are never escalated.
+     * Escalation is disabled by default.
+     * 
+     * @param newValue the new ratio (e.g., 0.5), or zero to disable 
+     *        escalation
+     * @throws IllegalArgumentException if the ratio is negative
+     */
+    public void setFullRefreshRatio(float newValue) {
+        if (newValue < 0) {
+            throw new IllegalArgumentException("Full refresh ratio must not be negative: " + newValue);
+        }
+        fullRefreshRatio = newValue;
+    }
+    
+    /**
+     * Sorts <code>ServerComponentUpdate</code>s by the depth of their parent components in the hierarchy, shallowest first.
+     * The depth of each ancestor is computed once, and the sort is stable.
+     * 
+     * @param updates the updates to sort
+     */
+    private static void sortByDepth(ServerComponentUpdate[] updates) {
+        Map depthCache = new IdentityHashMap();
+        List path = new ArrayList();
+        int[] depths = new int[updates.length];
+        int maxDepth = 0;
+        for (int i = 0; i < updates.length; ++i) {
+            // Walk up to the nearest ancestor of known depth, then record depths of components on the path.
+            int depth = 0;
+            Component component = updates[i].getParent();
+            while (component != null) {
+                Integer cachedDepth = (Integer) depthCache.get(component);
+                if (cachedDepth != null) {
+                    depth = cachedDepth.intValue();
+                    break;
+                }
+                path.add(component);
+                component = component.getParent();
+            }
+            for (int j = path.size() - 1; j >= 0; --j) {
+                ++depth;
+                depthCache.put(path.get(j), Integer.valueOf(depth));
+            }
+            path.clear();
+            
+            depths[i] = depth;
+            if (depth > maxDepth) {
+                maxDepth = depth;
+            }
+        }
+        
+        // Counting sort by depth.
+        int[] offsets = new int[maxDepth + 2];
+        for (int i = 0; i < depths.length; ++i) {
+            ++offsets[depths[i] + 1];
+        }
+        for (int depth = 0; depth <= maxDepth; ++depth) {
+            offsets[depth + 1] += offsets[depth];
+        }
+        ServerComponentUpdate[] unsorted = updates.clone();
+        for (int i = 0; i < unsorted.length; ++i) {
+            updates[offsets[depths[i]]++] = unsorted[i];
+        }
+    }
+    
+    /**
+     * Removes the records of a component and its descendants being added.
+     * 
+     * @param component the removed <code>Component</code>
+     */
+    private void unmarkAdded(Component component) {
+        addedComponents.remove(component);
+        for (int i = component.getComponentCount() - 1; i >= 0; --i) {
+            unmarkAdded(component.getComponent(i));
+        }
+    }
 }
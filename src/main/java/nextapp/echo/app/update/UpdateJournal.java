@@ -0,0 +1,355 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.app.update;
+
+import java.io.Serializable;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import nextapp.echo.app.Command;
+import nextapp.echo.app.Component;
+
+/**
+ * A bounded journal of recently rendered server update cycles, used to
+ * bring a client which missed one or more synchronizations (e.g., due to a
+ * dropped connection) back in sync without performing a full refresh.
+ * <p>
+ * Entries are stored in a ring buffer, oldest first.  Each entry is an
+ * immutable copy of the contents of the <code>ServerUpdateManager</code> at
+ * the time it was purged (the <code>ServerComponentUpdate</code>s themselves
+ * are recycled and thus cannot be retained).  Only structure is recorded: 
+ * property values are not retained, as replayed updates are rendered from the
+ * current state of the hierarchy.
+ */
+class UpdateJournal 
+implements Serializable {
+
+    /** Serial Version UID. */
+    private static final long serialVersionUID = 20070101L;
+    
+    private static final Component[] EMPTY_COMPONENT_ARRAY = new Component[0];
+    
+    /**
+     * Record of a single <code>ServerComponentUpdate</code>.
+     */
+    private static final class ComponentEntry 
+    implements Serializable {
+
+        /** Serial Version UID. */
+        private static final long serialVersionUID = 20070101L;
+
+        private Component parent;
+        private Component[] addedChildren;
+        private Component[] removedChildren;
+        private Component[] updatedLayoutDataChildren;
+        private String[] updatedPropertyNames;
+        
+        /**
+         * Creates a new <code>ComponentEntry</code> recording the state of 
+         * the specified update.
+         * 
+         * @param update the update to record
+         */
+        private ComponentEntry(ServerComponentUpdate update) {
+            super();
+            parent = update.getParent();
+            addedChildren = update.hasAddedChildren() ? update.getAddedChildren() : EMPTY_COMPONENT_ARRAY;
+            removedChildren = update.hasRemovedChildren() ? update.getRemovedChildren() : EMPTY_COMPONENT_ARRAY;
+            updatedLayoutDataChildren = update.hasUpdatedLayoutDataChildren() 
+                    ? update.getUpdatedLayoutDataChildren() : EMPTY_COMPONENT_ARRAY;
+            int propertyCount = update.getUpdatedPropertyCount();
+            updatedPropertyNames = new String[propertyCount];
+            for (int i = 0; i < propertyCount; ++i) {
+                updatedPropertyNames[i] = update.getUpdatedPropertyName(i);
+            }
+        }
+        
+        /**
+         * Replays the recorded child removals into a 
+         * <code>ServerUpdateManager</code>.  Removals of children which were
+         * first added within the replayed range (and thus never rendered to 
+         * the client) are skipped.
+         * 
+         * @param serverUpdateManager the target manager
+         * @param firstChanges mapping between children and a 
+         *        <code>Boolean</code> indicating whether the first replayed 
+         *        change to the child was an addition
+         */
+        private void replayRemovals(ServerUpdateManager serverUpdateManager, Map firstChanges) {
+            if (!parent.isRegistered()) {
+                // Parent is no longer in the hierarchy: its removal is recorded by an ancestor.
+                return;
+            }
+            for (int i = 0; i < removedChildren.length; ++i) {
+                Boolean firstAdded = (Boolean) firstChanges.get(removedChildren[i]);
+                if (firstAdded == null) {
+                    firstChanges.put(removedChildren[i], Boolean.FALSE);
+                } else if (firstAdded.booleanValue()) {
+                    continue;
+                }
+                serverUpdateManager.processComponentRemove(parent, removedChildren[i]);
+            }
+        }
+        
+        /**
+         * Replays the recorded child additions, property updates and 
+         * <code>LayoutData</code> updates into a 
+         * <code>ServerUpdateManager</code>.  Children which have since been
+         * moved elsewhere in the hierarchy are skipped, as their current 
+         * location is covered by later updates.
+         * 
+         * @param serverUpdateManager the target manager
+         * @param firstChanges mapping between children and a 
+         *        <code>Boolean</code> indicating whether the first replayed 
+         *        change to the child was an addition
+         */
+        private void replayUpdates(ServerUpdateManager serverUpdateManager, Map firstChanges) {
+            if (!parent.isRegistered()) {
+                // Parent is no longer in the hierarchy: its removal is recorded by an ancestor.
+                return;
+            }
+            for (int i = 0; i < addedChildren.length; ++i) {
+                if (!firstChanges.containsKey(addedChildren[i])) {
+                    firstChanges.put(addedChildren[i], Boolean.TRUE);
+                }
+                if (addedChildren[i].getParent() == parent) {
+                    serverUpdateManager.processComponentAdd(parent, addedChildren[i]);
+                }
+            }
+            for (int i = 0; i < updatedPropertyNames.length; ++i) {
+                serverUpdateManager.processComponentPropertyUpdate(parent, updatedPropertyNames[i], null, null);
+            }
+            for (int i = 0; i < updatedLayoutDataChildren.length; ++i) {
+                if (updatedLayoutDataChildren[i].getParent() == parent) {
+                    serverUpdateManager.processComponentLayoutDataUpdate(updatedLayoutDataChildren[i]);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Record of a single server update cycle.
+     */
+    private static final class Entry 
+    implements Serializable {
+
+        /** Serial Version UID. */
+        private static final long serialVersionUID = 20070101L;
+
+        private long sequence;
+        private ComponentEntry[] componentEntries;
+        private String[] applicationPropertyNames;
+        private PropertyUpdate[] applicationPropertyUpdates;
+        private Command[] commands;
+        
+        /**
+         * Creates a new <code>Entry</code> recording the current contents of
+         * the specified <code>ServerUpdateManager</code>.
+         * 
+         * @param sequence the sequence number of the update cycle
+         * @param serverUpdateManager the manager to record
+         */
+        private Entry(long sequence, ServerUpdateManager serverUpdateManager) {
+            super();
+            this.sequence = sequence;
+            ServerComponentUpdate[] updates = serverUpdateManager.getComponentUpdates();
+            componentEntries = new ComponentEntry[updates.length];
+            for (int i = 0; i < updates.length; ++i) {
+                componentEntries[i] = new ComponentEntry(updates[i]);
+            }
+            applicationPropertyNames = serverUpdateManager.getApplicationPropertyUpdateNames();
+            applicationPropertyUpdates = new PropertyUpdate[applicationPropertyNames.length];
+            for (int i = 0; i < applicationPropertyNames.length; ++i) {
+                applicationPropertyUpdates[i] = serverUpdateManager.getApplicationPropertyUpdate(applicationPropertyNames[i]);
+            }
+            commands = serverUpdateManager.getCommands();
+        }
+        
+        /**
+         * Replays the recorded cycle into a <code>ServerUpdateManager</code>.
+         * 
+         * @param serverUpdateManager the target manager
+         * @param firstChanges mapping between children and whether the first
+         *        replayed change to each was an addition
+         */
+        private void replay(ServerUpdateManager serverUpdateManager, Map firstChanges) {
+            // All removals of the cycle are replayed before its additions, as a child moved within the cycle is 
+            // recorded as both removed from its former parent and added to its new parent, in no particular order.
+            for (int i = 0; i < componentEntries.length; ++i) {
+                componentEntries[i].replayRemovals(serverUpdateManager, firstChanges);
+            }
+            // Entries are stored sorted by depth, such that ancestor updates are replayed first.
+            for (int i = 0; i < componentEntries.length; ++i) {
+                componentEntries[i].replayUpdates(serverUpdateManager, firstChanges);
+            }
+            for (int i = 0; i < applicationPropertyNames.length; ++i) {
+                serverUpdateManager.processApplicationPropertyUpdate(applicationPropertyNames[i],
+                        applicationPropertyUpdates[i].getOldValue(), applicationPropertyUpdates[i].getNewValue());
+            }
+            for (int i = 0; i < commands.length; ++i) {
+                serverUpdateManager.enqueueCommand(commands[i]);
+            }
+        }
+    }
+    
+    /** Ring buffer of entries, oldest at <code>head</code>. */
+    private Entry[] entries;
+    private int head;
+    private int size;
+    
+    /** 
+     * The lowest sequence number from which all subsequent update cycles
+     * are recorded in the journal.
+     */
+    private long coveredSequence;
+    
+    /**
+     * Creates a new <code>UpdateJournal</code>.
+     * 
+     * @param capacity the maximum number of update cycles to retain
+     * @param firstSequence the sequence number of the first update cycle
+     */
+    UpdateJournal(int capacity, long firstSequence) {
+        super();
+        entries = new Entry[capacity];
+        coveredSequence = firstSequence;
+    }
+    
+    /**
+     * Determines whether the journal contains every update cycle following
+     * the specified sequence number.
+     * 
+     * @param lastAppliedSequence the sequence number of the last update cycle
+     *        applied by the client
+     * @return true if the journal covers all subsequent cycles
+     */
+    boolean covers(long lastAppliedSequence) {
+        return lastAppliedSequence + 1 >= coveredSequence;
+    }
+    
+    /**
+     * Returns the maximum number of update cycles retained.
+     * 
+     * @return the capacity
+     */
+    int getCapacity() {
+        return entries.length;
+    }
+    
+    /**
+     * Determines whether a <code>ServerUpdateManager</code> contains no 
+     * updates of any kind, i.e., no component updates, application property
+     * updates, commands, or full refresh.
+     * 
+     * @param serverUpdateManager the manager to test
+     * @return true if the manager contains no updates
+     */
+    private static boolean isCycleEmpty(ServerUpdateManager serverUpdateManager) {
+        return !serverUpdateManager.isFullRefreshRequired() && serverUpdateManager.isEmpty()
+                && serverUpdateManager.getApplicationPropertyUpdateNames().length == 0 
+                && serverUpdateManager.getCommands().length == 0;
+    }
+    
+    /**
+     * Records the current contents of a <code>ServerUpdateManager</code> as 
+     * the update cycle with the specified sequence number.  Must be invoked 
+     * before the manager is purged.  Empty cycles are not recorded.
+     * A full refresh cycle discards all entries, as clients which missed it
+     * cannot be recovered other than by another full refresh.
+     * 
+     * @param sequence the sequence number of the update cycle, which must
+     *        be greater than that of any previously recorded cycle
+     * @param serverUpdateManager the manager to record
+     */
+    void record(long sequence, ServerUpdateManager serverUpdateManager) {
+        if (isCycleEmpty(serverUpdateManager)) {
+            return;
+        }
+        if (entries.length == 0 || serverUpdateManager.isFullRefreshRequired()) {
+            for (int i = 0; i < size; ++i) {
+                entries[(head + i) % entries.length] = null;
+            }
+            head = 0;
+            size = 0;
+            coveredSequence = sequence + 1;
+            return;
+        }
+        if (size == entries.length) {
+            // Evict oldest entry.
+            coveredSequence = entries[head].sequence + 1;
+            entries[head] = null;
+            head = (head + 1) % entries.length;
+            --size;
+        }
+        entries[(head + size) % entries.length] = new Entry(sequence, serverUpdateManager);
+        ++size;
+    }
+    
+    /**
+     * Replays all recorded update cycles following the specified sequence 
+     * number into a <code>ServerUpdateManager</code>, oldest first.  
+     * The journal must cover the specified sequence number.
+     * 
+     * @param lastAppliedSequence the sequence number of the last update cycle
+     *        applied by the client
+     * @param serverUpdateManager the target manager
+     * @see #covers(long)
+     */
+    void replay(long lastAppliedSequence, ServerUpdateManager serverUpdateManager) {
+        Map firstChanges = new IdentityHashMap();
+        for (int i = 0; i < size; ++i) {
+            Entry entry = entries[(head + i) % entries.length];
+            if (entry.sequence > lastAppliedSequence) {
+                entry.replay(serverUpdateManager, firstChanges);
+            }
+        }
+    }
+    
+    /**
+     * Sets the maximum number of update cycles retained.
+     * If the journal contains more entries than the new capacity, the oldest
+     * are discarded.
+     * 
+     * @param newValue the new capacity
+     */
+    void setCapacity(int newValue) {
+        Entry[] newEntries = new Entry[newValue];
+        int discard = size > newValue ? size - newValue : 0;
+        if (discard > 0) {
+            coveredSequence = entries[(head + discard - 1) % entries.length].sequence + 1;
+        }
+        for (int i = discard; i < size; ++i) {
+            newEntries[i - discard] = entries[(head + i) % entries.length];
+        }
+        size -= discard;
+        entries = newEntries;
+        head = 0;
+    }
+}
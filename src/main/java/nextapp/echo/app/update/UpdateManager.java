@@ -41,11 +41,17 @@ implements Serializable {
 
     /** Serial Version UID. */
     private static final long serialVersionUID = 20070101L;
-
+    
     private ClientUpdateManager clientUpdateManager;
     private ServerUpdateManager serverUpdateManager;
     private ApplicationInstance applicationInstance;
     
+    /** The sequence number of the pending update cycle. */
+    private long sequence = 1;
+    
+    /** The journal of rendered update cycles, or null if disabled. */
+    private UpdateJournal journal;
+    
     /**
      * Creates a new <code>UpdateManager</code>.
      * <strong>Warning:</strong> the creator must take care to invoke the
@@ -72,6 +78,31 @@ implements Serializable {
         return clientUpdateManager;
     }
     
+    /**
+     * Returns the maximum number of rendered update cycles retained for
+     * recovery.  The journal is disabled (capacity zero) by default.
+     * 
+     * @return the journal capacity
+     * @see #recover(long)
+     */
+    public int getJournalCapacity() {
+        return journal == null ? 0 : journal.getCapacity();
+    }
+    
+    /**
+     * Returns the sequence number of the pending update cycle, i.e., the 
+     * cycle whose updates are currently queued in the 
+     * <code>ServerUpdateManager</code>.  The sequence number is incremented 
+     * each time the updates are purged.  Containers should send this value
+     * to the client with the rendered updates, such that the client may
+     * report the last cycle it applied to <code>recover()</code>.
+     * 
+     * @return the sequence number
+     */
+    public long getSequence() {
+        return sequence;
+    }
+    
     /**
      * Returns the <code>ServerUpdateManager</code>, which is responsible for
      * queuing server-side updates and rendering them to the client.
@@ -100,9 +131,67 @@ implements Serializable {
     
     /**
      * Purges all client and server updates.
+     * <code>ServerComponentUpdate</code>s retrieved prior to purging are 
+     * recycled and must not be retained.
      */
     public void purge() {
+        if (journal != null) {
+            journal.record(sequence, serverUpdateManager);
+        }
+        ++sequence;
         clientUpdateManager.purge();
         serverUpdateManager.purge();
     }
+    
+    /**
+     * Recovers a client which did not apply one or more rendered update 
+     * cycles, e.g., as the result of a dropped connection.
+     * If the journal still covers every cycle following the one last applied
+     * by the client, those cycles are replayed into the 
+     * <code>ServerUpdateManager</code> such that they will be rendered with
+     * the pending updates.  Replayed updates reflect the current state of the
+     * hierarchy.  Otherwise, including when the client missed any cycle while
+     * the journal was disabled, a full refresh is performed.
+     * <p>
+     * This method should be invoked prior to processing the client's updates.
+     * 
+     * @param lastAppliedSequence the sequence number of the last update cycle
+     *        applied by the client
+     * @return true if the missed cycles were replayed, false if a full 
+     *         refresh was required
+     */
+    public boolean recover(long lastAppliedSequence) {
+        if (lastAppliedSequence == sequence - 1) {
+            // Client missed nothing.
+            return true;
+        }
+        if (journal == null || lastAppliedSequence >= sequence || !journal.covers(lastAppliedSequence)) {
+            serverUpdateManager.processFullRefresh();
+            return false;
+        }
+        journal.replay(lastAppliedSequence, serverUpdateManager);
+        return true;
+    }
+    
+    /**
+     * Sets the maximum number of rendered update cycles retained for 
+     * recovery.  A value of zero (the default) disables the journal, such 
+     * that any recovery of missed cycles will result in a full refresh.
+     * Cycles rendered before the journal is enabled are not recoverable.
+     * 
+     * @param newValue the new journal capacity
+     * @see #recover(long)
+     */
+    public void setJournalCapacity(int newValue) {
+        if (newValue < 0) {
+            throw new IllegalArgumentException("Journal capacity must not be negative.");
+        }
+        if (newValue == 0) {
+            journal = null;
+        } else if (journal == null) {
+            journal = new UpdateJournal(newValue, sequence);
+        } else {
+            journal.setCapacity(newValue);
+        }
+    }
 }
@@ -0,0 +1,161 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.app;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Verifies the per-instance memory footprint of plain <code>Component</code>s.
+ * Shallow sizes are estimated from the instance field layout, assuming a 
+ * 12 byte object header, 4 byte (compressed) references, and 8 byte
+ * alignment, as is the case for a default 64-bit HotSpot VM.
+ */
+public class ComponentFootprintTest {
+
+    /** 
+     * Maximum estimated shallow size of a <code>Label</code> or <code>Row</code>, in bytes
+     * (including the cached encoded render id).
+     */
+    private static final int MAX_SHALLOW_SIZE = 64;
+
+    private ApplicationInstance app;
+
+    /**
+     * Returns the estimated shallow size of instances of a class.
+     * 
+     * @param type the class
+     * @return the estimated size, in bytes
+     */
+    private static int shallowSize(Class type) {
+        int size = 12;
+        for (Class c = type; c != null; c = c.getSuperclass()) {
+            Field[] fields = c.getDeclaredFields();
+            for (int i = 0; i < fields.length; ++i) {
+                if (Modifier.isStatic(fields[i].getModifiers())) {
+                    continue;
+                }
+                Class fieldType = fields[i].getType();
+                if (fieldType == long.class || fieldType == double.class) {
+                    size += 8;
+                } else if (fieldType == int.class || fieldType == float.class) {
+                    size += 4;
+                } else if (fieldType == short.class || fieldType == char.class) {
+                    size += 2;
+                } else if (fieldType == byte.class || fieldType == boolean.class) {
+                    size += 1;
+                } else {
+                    size += 4;
+                }
+            }
+        }
+        return (size + 7) & ~7;
+    }
+
+    /**
+     * Returns the value of a private <code>Component</code> field.
+     * 
+     * @param component the component
+     * @param name the field name
+     * @return the value
+     */
+    private static Object getComponentField(Component component, String name) 
+    throws Exception {
+        Field field = Component.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(component);
+    }
+
+    @BeforeMethod
+    public void setUp() {
+        app = new ApplicationInstance() {
+            public Window init() {
+                return new Window();
+            }
+        };
+        ApplicationInstance.setActive(app);
+        app.doInit();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        ApplicationInstance.setActive(null);
+    }
+
+    @Test
+    public void testShallowSize() {
+        assertTrue(shallowSize(Label.class) <= MAX_SHALLOW_SIZE, "Label size: " + shallowSize(Label.class));
+        assertTrue(shallowSize(Row.class) <= MAX_SHALLOW_SIZE, "Row size: " + shallowSize(Row.class));
+    }
+
+    @Test
+    public void testNoSideAllocationWhenUnset() 
+    throws Exception {
+        Label label = new Label();
+        Row row = new Row();
+        assertSame(label.getLocalStyle(), row.getLocalStyle());
+        assertNull(getComponentField(label, "rareFields"));
+        assertNull(getComponentField(row, "rareFields"));
+    }
+
+    @Test
+    public void testNoSideAllocationOnUnregister() 
+    throws Exception {
+        Column column = new Column();
+        app.getDefaultWindow().getContent().add(column);
+        Label label = new Label("Text");
+        column.add(label);
+        String renderId = label.getRenderId();
+        assertNotNull(renderId);
+        column.remove(label);
+        assertNull(getComponentField(label, "rareFields"));
+        assertEquals(label.getLastRenderId(), renderId);
+    }
+
+    @Test
+    public void testLocalStyleAllocatedOnSet() {
+        Label label = new Label();
+        Label other = new Label();
+        label.setForeground(Color.RED);
+        assertEquals(label.getForeground(), Color.RED);
+        assertNull(other.getForeground());
+        assertTrue(label.getLocalStyle() != other.getLocalStyle());
+    }
+}
@@ -0,0 +1,380 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.app;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import nextapp.echo.app.update.ServerComponentUpdate;
+import nextapp.echo.app.update.ServerUpdateManager;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests <code>Component.reconcileChildren()</code>: the resulting child 
+ * order, the registration state of retained children, and the updates 
+ * reported to the <code>ServerUpdateManager</code>.
+ */
+public class ReconcileChildrenTest {
+
+    /**
+     * <code>Label</code> counting life-cycle method invocations.
+     */
+    private static class TestLabel extends Label {
+        
+        /** Serial Version UID. */
+        private static final long serialVersionUID = 20070101L;
+        
+        int initCount;
+        int disposeCount;
+        
+        TestLabel(String text) {
+            super(text);
+        }
+        
+        /**
+         * @see nextapp.echo.app.Component#dispose()
+         */
+        public void dispose() {
+            super.dispose();
+            ++disposeCount;
+        }
+        
+        /**
+         * @see nextapp.echo.app.Component#init()
+         */
+        public void init() {
+            super.init();
+            ++initCount;
+        }
+        
+        /**
+         * @see java.lang.Object#toString()
+         */
+        public String toString() {
+            return getText();
+        }
+    }
+    
+    /**
+     * <code>Column</code> accepting at most three children.
+     */
+    private static class LimitedColumn extends Column {
+
+        /** Serial Version UID. */
+        private static final long serialVersionUID = 20070101L;
+        
+        /**
+         * @see nextapp.echo.app.Component#isValidChild(nextapp.echo.app.Component)
+         */
+        public boolean isValidChild(Component child) {
+            return getComponentCount() < 3;
+        }
+    }
+    
+    private ApplicationInstance app;
+    private Column parent;
+    private TestLabel[] labels;
+    private String[] renderIds;
+
+    /**
+     * Returns the single pending <code>ServerComponentUpdate</code>, 
+     * asserting that it is an update of <code>parent</code>.
+     * 
+     * @return the update
+     */
+    private ServerComponentUpdate getParentUpdate() {
+        ServerComponentUpdate[] updates = getServerUpdateManager().getComponentUpdates();
+        assertEquals(updates.length, 1);
+        assertSame(updates[0].getParent(), parent);
+        assertFalse(updates[0].hasUpdatedProperties());
+        return updates[0];
+    }
+    
+    private ServerUpdateManager getServerUpdateManager() {
+        return app.getUpdateManager().getServerUpdateManager();
+    }
+    
+    /**
+     * Asserts that the children of <code>parent</code> are the specified
+     * labels, in order.
+     * 
+     * @param indices the indices of the expected labels
+     */
+    private void assertChildren(int[] indices) {
+        assertEquals(parent.getComponentCount(), indices.length);
+        for (int i = 0; i < indices.length; ++i) {
+            assertSame(parent.getComponent(i), labels[indices[i]]);
+            assertSame(labels[indices[i]].getParent(), parent);
+        }
+    }
+    
+    /**
+     * Asserts that the specified labels remain registered with their 
+     * original render ids, and have been neither disposed nor
+     * re-initialized.
+     * 
+     * @param indices the indices of the labels
+     */
+    private void assertRetained(int[] indices) {
+        for (int i = 0; i < indices.length; ++i) {
+            TestLabel label = labels[indices[i]];
+            assertTrue(label.isRegistered());
+            assertEquals(label.getRenderId(), renderIds[indices[i]]);
+            assertEquals(label.initCount, 1);
+            assertEquals(label.disposeCount, 0);
+        }
+    }
+    
+    /**
+     * Returns the specified labels as a <code>List</code>.
+     * 
+     * @param indices the indices of the labels
+     * @return the list
+     */
+    private List<Component> labels(int[] indices) {
+        Component[] components = new Component[indices.length];
+        for (int i = 0; i < indices.length; ++i) {
+            components[i] = labels[indices[i]];
+        }
+        return Arrays.asList(components);
+    }
+    
+    /**
+     * Returns the specified components as a <code>Set</code>.
+     * 
+     * @param components the components
+     * @return the set
+     */
+    private static Set<Component> set(Component[] components) {
+        return new HashSet<Component>(Arrays.asList(components));
+    }
+    
+    @BeforeMethod
+    public void setUp() {
+        app = new ApplicationInstance() {
+            public Window init() {
+                return new Window();
+            }
+        };
+        ApplicationInstance.setActive(app);
+        app.doInit();
+        Column root = new Column();
+        app.getDefaultWindow().getContent().add(root);
+        parent = new Column();
+        root.add(parent);
+        labels = new TestLabel[6];
+        for (int i = 0; i < labels.length; ++i) {
+            labels[i] = new TestLabel("label" + i);
+        }
+        parent.addAll(labels(new int[] { 0, 1, 2, 3 }));
+        renderIds = new String[labels.length];
+        for (int i = 0; i < 4; ++i) {
+            renderIds[i] = labels[i].getRenderId();
+        }
+        app.getUpdateManager().purge();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        ApplicationInstance.setActive(null);
+    }
+    
+    @Test
+    public void testReorder() {
+        parent.reconcileChildren(labels(new int[] { 3, 1, 0, 2 }));
+        assertChildren(new int[] { 3, 1, 0, 2 });
+        assertRetained(new int[] { 0, 1, 2, 3 });
+        
+        // Labels 1 and 2 retain their relative order and stay in place; only labels 0 and 3 are moved.
+        ServerComponentUpdate update = getParentUpdate();
+        Set<Component> moved = set(new Component[] { labels[0], labels[3] });
+        assertEquals(set(update.getRemovedChildren()), moved);
+        assertEquals(set(update.getAddedChildren()), moved);
+    }
+    
+    @Test
+    public void testReverse() {
+        parent.reconcileChildren(labels(new int[] { 3, 2, 1, 0 }));
+        assertChildren(new int[] { 3, 2, 1, 0 });
+        assertRetained(new int[] { 0, 1, 2, 3 });
+        
+        // A single child stays in place.
+        ServerComponentUpdate update = getParentUpdate();
+        assertEquals(update.getRemovedChildCount(), 3);
+        assertEquals(update.getAddedChildCount(), 3);
+    }
+    
+    @Test
+    public void testUnchanged() {
+        parent.reconcileChildren(labels(new int[] { 0, 1, 2, 3 }));
+        assertChildren(new int[] { 0, 1, 2, 3 });
+        assertRetained(new int[] { 0, 1, 2, 3 });
+        assertTrue(getServerUpdateManager().isEmpty());
+    }
+    
+    @Test
+    public void testInsert() {
+        parent.reconcileChildren(labels(new int[] { 4, 0, 1, 5, 2, 3 }));
+        assertChildren(new int[] { 4, 0, 1, 5, 2, 3 });
+        assertRetained(new int[] { 0, 1, 2, 3 });
+        assertTrue(labels[4].isRegistered());
+        assertTrue(labels[5].isRegistered());
+        assertEquals(labels[4].initCount, 1);
+        assertEquals(labels[5].initCount, 1);
+        
+        ServerComponentUpdate update = getParentUpdate();
+        assertEquals(set(update.getAddedChildren()), set(new Component[] { labels[4], labels[5] }));
+        assertFalse(update.hasRemovedChildren());
+    }
+    
+    @Test
+    public void testDelete() {
+        parent.reconcileChildren(labels(new int[] { 0, 2 }));
+        assertChildren(new int[] { 0, 2 });
+        assertRetained(new int[] { 0, 2 });
+        for (int i = 1; i <= 3; i += 2) {
+            assertFalse(labels[i].isRegistered());
+            assertNull(labels[i].getParent());
+            assertEquals(labels[i].disposeCount, 1);
+        }
+        
+        ServerComponentUpdate update = getParentUpdate();
+        assertEquals(set(update.getRemovedChildren()), set(new Component[] { labels[1], labels[3] }));
+        assertFalse(update.hasAddedChildren());
+    }
+    
+    @Test
+    public void testInsertDeleteAndMove() {
+        parent.reconcileChildren(labels(new int[] { 2, 4, 0, 3 }));
+        assertChildren(new int[] { 2, 4, 0, 3 });
+        assertRetained(new int[] { 0, 2, 3 });
+        assertFalse(labels[1].isRegistered());
+        
+        // A single retained label is moved (labels 2 and 3 stay in place); label 4 is added, label 1 removed.
+        ServerComponentUpdate update = getParentUpdate();
+        assertEquals(set(update.getAddedChildren()), set(new Component[] { labels[0], labels[4] }));
+        assertEquals(set(update.getRemovedChildren()), set(new Component[] { labels[0], labels[1] }));
+    }
+    
+    @Test
+    public void testDuplicate() {
+        try {
+            parent.reconcileChildren(labels(new int[] { 1, 0, 1 }));
+            fail("Duplicate child accepted.");
+        } catch (IllegalArgumentException ex) {
+            // Expected.
+        }
+        assertChildren(new int[] { 0, 1, 2, 3 });
+        assertRetained(new int[] { 0, 1, 2, 3 });
+        assertTrue(getServerUpdateManager().isEmpty());
+    }
+    
+    @Test
+    public void testInvalidChild() {
+        try {
+            parent.reconcileChildren(Arrays.asList(new Component[] { labels[3], labels[0], new Window() }));
+            fail("Invalid child accepted.");
+        } catch (IllegalChildException ex) {
+            // Expected.
+        }
+        assertChildren(new int[] { 0, 1, 2, 3 });
+        assertRetained(new int[] { 0, 1, 2, 3 });
+        assertTrue(getServerUpdateManager().isEmpty());
+    }
+    
+    @Test
+    public void testChildCountLimit() {
+        parent.removeAll();
+        LimitedColumn limited = new LimitedColumn();
+        parent.add(limited);
+        limited.addAll(labels(new int[] { 0, 1 }));
+        app.getUpdateManager().purge();
+        
+        try {
+            limited.reconcileChildren(labels(new int[] { 1, 0, 2, 3 }));
+            fail("Child in excess of limit accepted.");
+        } catch (IllegalChildException ex) {
+            // Expected.
+        }
+        assertEquals(Arrays.asList(limited.getComponents()), labels(new int[] { 0, 1 }));
+        assertTrue(getServerUpdateManager().isEmpty());
+        
+        // Moves do not count against the limit.
+        limited.reconcileChildren(labels(new int[] { 1, 2, 0 }));
+        assertEquals(Arrays.asList(limited.getComponents()), labels(new int[] { 1, 2, 0 }));
+        assertTrue(labels[0].isRegistered());
+        assertEquals(labels[0].initCount, 2);
+    }
+    
+    @Test
+    public void testFailedMoveIsRemoved() {
+        Column guarded = new Column() {
+            
+            /** Serial Version UID. */
+            private static final long serialVersionUID = 20070101L;
+            
+            /**
+             * @see nextapp.echo.app.Component#add(nextapp.echo.app.Component, int)
+             */
+            public void add(Component c, int n) {
+                if (c == labels[0] && c.isRegistered()) {
+                    throw new IllegalStateException();
+                }
+                super.add(c, n);
+            }
+        };
+        parent.removeAll();
+        parent.add(guarded);
+        guarded.addAll(labels(new int[] { 0, 1, 2 }));
+        
+        try {
+            guarded.reconcileChildren(labels(new int[] { 1, 2, 0 }));
+            fail("Guard not invoked for moved child.");
+        } catch (IllegalStateException ex) {
+            // Expected.
+        }
+        assertEquals(Arrays.asList(guarded.getComponents()), labels(new int[] { 1, 2 }));
+        assertNull(labels[0].getParent());
+        assertFalse(labels[0].isRegistered());
+        assertEquals(labels[0].disposeCount, 2);
+    }
+}
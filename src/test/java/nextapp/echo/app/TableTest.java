@@ -0,0 +1,306 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.app;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import nextapp.echo.app.table.DefaultTableModel;
+import nextapp.echo.app.table.TableCellRenderer;
+import nextapp.echo.app.update.ServerComponentUpdate;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the rendering of <code>Table</code> cells in response to model 
+ * changes, with and without a viewport, and with recycling and 
+ * non-recycling cell renderers.
+ */
+public class TableTest {
+    
+    /**
+     * Non-recycling renderer, creating a new <code>Label</code> for each cell.
+     */
+    private static final TableCellRenderer LABEL_RENDERER = new TableCellRenderer() {
+
+        /** Serial Version UID. */
+        private static final long serialVersionUID = 20070101L;
+
+        /**
+         * @see nextapp.echo.app.table.TableCellRenderer#getTableCellRendererComponent(nextapp.echo.app.Table, 
+         *      java.lang.Object, int, int)
+         */
+        public Component getTableCellRendererComponent(Table table, Object value, int column, int row) {
+            return new Label(String.valueOf(value));
+        }
+    };
+    
+    private static final int COLUMN_COUNT = 2;
+    
+    private ApplicationInstance app;
+    private DefaultTableModel model;
+    private Table table;
+    
+    /**
+     * Asserts that the table's children are its header cells followed by
+     * the cells of the specified rows, each displaying its model value.
+     * 
+     * @param firstRow the first rendered row
+     * @param rowCount the number of rendered rows
+     */
+    private void assertCells(int firstRow, int rowCount) {
+        assertEquals(table.getComponentCount(), COLUMN_COUNT * (rowCount + 1));
+        for (int column = 0; column < COLUMN_COUNT; ++column) {
+            assertEquals(((Label) table.getComponent(column)).getText(), model.getColumnName(column));
+        }
+        for (int row = 0; row < rowCount; ++row) {
+            for (int column = 0; column < COLUMN_COUNT; ++column) {
+                Component cell = table.getComponent(COLUMN_COUNT * (row + 1) + column);
+                assertTrue(cell.isRegistered());
+                assertEquals(((Label) cell).getText(), model.getValueAt(column, firstRow + row));
+            }
+        }
+    }
+    
+    /**
+     * Asserts that a range of the table's children have the specified 
+     * render ids.
+     * 
+     * @param childIndex the index of the first child
+     * @param renderIds the expected render ids
+     * @param offset the index of the first expected render id
+     * @param count the number of children to test
+     */
+    private void assertRenderIds(int childIndex, String[] renderIds, int offset, int count) {
+        for (int i = 0; i < count; ++i) {
+            assertEquals(table.getComponent(childIndex + i).getRenderId(), renderIds[offset + i]);
+        }
+    }
+    
+    /**
+     * Returns the index of the first child representing a row.
+     * 
+     * @param renderedRow the index of the row within the rendered rows
+     * @return the child index
+     */
+    private static int childIndex(int renderedRow) {
+        return COLUMN_COUNT * (renderedRow + 1);
+    }
+    
+    /**
+     * Creates and renders the table.
+     * 
+     * @param rowCount the number of model rows
+     * @param renderer the default cell renderer, or null to use the 
+     *        default (recycling) renderer
+     * @param virtualized whether the table is virtualized
+     */
+    private void createTable(int rowCount, TableCellRenderer renderer, boolean virtualized) {
+        model = new DefaultTableModel(COLUMN_COUNT, rowCount);
+        for (int row = 0; row < rowCount; ++row) {
+            for (int column = 0; column < COLUMN_COUNT; ++column) {
+                model.setValueAt(column + "," + row, column, row);
+            }
+        }
+        table = new Table(model);
+        if (renderer != null) {
+            table.setDefaultRenderer(Object.class, renderer);
+        }
+        if (virtualized) {
+            table.setVirtualized(true);
+            table.setOverscanRowCount(2);
+            table.setViewport(10, 5);
+        }
+        app.getDefaultWindow().getContent().add(table);
+        table.validate();
+        app.getUpdateManager().purge();
+    }
+    
+    /**
+     * Returns the render ids of the table's children.
+     * 
+     * @return the render ids
+     */
+    private String[] getRenderIds() {
+        String[] renderIds = new String[table.getComponentCount()];
+        for (int i = 0; i < renderIds.length; ++i) {
+            renderIds[i] = table.getComponent(i).getRenderId();
+            assertNotNull(renderIds[i]);
+        }
+        return renderIds;
+    }
+    
+    @BeforeMethod
+    public void setUp() {
+        app = new ApplicationInstance() {
+            public Window init() {
+                return new Window();
+            }
+        };
+        ApplicationInstance.setActive(app);
+        app.doInit();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        ApplicationInstance.setActive(null);
+    }
+    
+    @Test
+    public void testInsert() {
+        createTable(3, LABEL_RENDERER, false);
+        String[] renderIds = getRenderIds();
+        model.insertRow(1, new Object[] { "new0", "new1" });
+        table.validate();
+        assertCells(0, 4);
+        
+        // Only the inserted row's cells are added.
+        String[] newRenderIds = getRenderIds();
+        assertRenderIds(0, renderIds, 0, childIndex(1));
+        assertFalse(newRenderIds[childIndex(1)].equals(renderIds[childIndex(1)]));
+        assertRenderIds(childIndex(2), renderIds, childIndex(1), 2 * COLUMN_COUNT);
+    }
+    
+    @Test
+    public void testDelete() {
+        createTable(3, LABEL_RENDERER, false);
+        String[] renderIds = getRenderIds();
+        model.deleteRow(1);
+        table.validate();
+        assertCells(0, 2);
+        
+        // Only the deleted row's cells are removed.
+        assertRenderIds(0, renderIds, 0, childIndex(1));
+        assertRenderIds(childIndex(1), renderIds, childIndex(2), COLUMN_COUNT);
+    }
+    
+    @Test
+    public void testUpdate() {
+        createTable(3, LABEL_RENDERER, false);
+        String[] renderIds = getRenderIds();
+        model.setValueAt("x", 1, 2);
+        table.validate();
+        assertCells(0, 3);
+        
+        // Only the cell at column 1, row 2 is replaced.
+        String[] newRenderIds = getRenderIds();
+        for (int i = 0; i < renderIds.length; ++i) {
+            assertEquals(newRenderIds[i].equals(renderIds[i]), i != childIndex(2) + 1, "Child " + i);
+        }
+    }
+    
+    @Test
+    public void testUpdateRecycled() {
+        createTable(3, null, false);
+        String[] renderIds = getRenderIds();
+        Component cell = table.getComponent(childIndex(2) + 1);
+        model.setValueAt("x", 1, 2);
+        table.validate();
+        assertCells(0, 3);
+        
+        // The cell is reconfigured in place.
+        assertSame(table.getComponent(childIndex(2) + 1), cell);
+        assertRenderIds(0, renderIds, 0, renderIds.length);
+        ServerComponentUpdate[] updates = app.getUpdateManager().getServerUpdateManager().getComponentUpdates();
+        assertEquals(updates.length, 1);
+        assertSame(updates[0].getParent(), cell);
+    }
+    
+    @Test
+    public void testInsertAndDeleteRecycled() {
+        createTable(3, null, false);
+        model.deleteRow(0);
+        model.insertRow(2, new Object[] { "new0", "new1" });
+        table.validate();
+        assertCells(0, 3);
+    }
+    
+    @Test
+    public void testViewportRender() {
+        createTable(50, LABEL_RENDERER, true);
+        
+        // Viewport rows 10-14, plus two overscan rows on either side.
+        assertCells(8, 9);
+        String[] renderIds = getRenderIds();
+        
+        // Viewport within rendered rows: not re-rendered.
+        table.setViewport(11, 5);
+        table.validate();
+        assertRenderIds(0, renderIds, 0, renderIds.length);
+        
+        // Viewport beyond rendered rows: re-rendered.
+        table.setViewport(30, 5);
+        table.validate();
+        assertCells(28, 9);
+    }
+    
+    @Test
+    public void testViewportUpdate() {
+        createTable(50, LABEL_RENDERER, true);
+        String[] renderIds = getRenderIds();
+        
+        // Update of a row outside the rendered rows changes no cells.
+        model.setValueAt("x", 0, 30);
+        table.validate();
+        assertRenderIds(0, renderIds, 0, renderIds.length);
+        
+        // Update of a rendered row replaces only its cell.
+        model.setValueAt("x", 0, 9);
+        table.validate();
+        assertCells(8, 9);
+        String[] newRenderIds = getRenderIds();
+        for (int i = 0; i < renderIds.length; ++i) {
+            assertEquals(newRenderIds[i].equals(renderIds[i]), i != childIndex(1), "Child " + i);
+        }
+    }
+    
+    @Test
+    public void testViewportInsert() {
+        createTable(50, LABEL_RENDERER, true);
+        model.insertRow(9, new Object[] { "new0", "new1" });
+        table.validate();
+        assertCells(8, 9);
+        assertEquals(((Label) table.getComponent(childIndex(1))).getText(), "new0");
+    }
+    
+    @Test
+    public void testViewportDelete() {
+        createTable(50, LABEL_RENDERER, true);
+        model.deleteRow(0);
+        table.validate();
+        assertCells(8, 9);
+        assertEquals(((Label) table.getComponent(childIndex(0))).getText(), "0,9");
+    }
+}
@@ -0,0 +1,332 @@
+/* 
+ * This file is part of the Echo Web Application Framework (hereinafter "Echo").
+ * Copyright (C) 2002-2009 NextApp, Inc.
+ *
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ */
+
+package nextapp.echo.app.update;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import nextapp.echo.app.ApplicationInstance;
+import nextapp.echo.app.Color;
+import nextapp.echo.app.Column;
+import nextapp.echo.app.Component;
+import nextapp.echo.app.Label;
+import nextapp.echo.app.Window;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests recovery of clients which missed update cycles by way of the 
+ * <code>UpdateManager</code>'s journal.  Each scenario is run against two
+ * identically constructed applications: the first renders (purges) every
+ * cycle and then recovers the client, the second renders only the cycles 
+ * the client applied and accumulates the remainder.  The recovered updates
+ * must match the accumulated updates.  Generated render ids are identical
+ * across the two applications, and are used to compare updates.
+ */
+public class UpdateJournalTest {
+    
+    /**
+     * The component hierarchy of a test application.
+     */
+    private static class Fixture {
+        
+        final ApplicationInstance app;
+        final Column[] columns = new Column[2];
+        final Label[] labels = new Label[4];
+        
+        /**
+         * Creates a new <code>Fixture</code>, with the labels split between
+         * the two columns and the initial state rendered.
+         * 
+         * @param journalCapacity the journal capacity
+         */
+        Fixture(int journalCapacity) {
+            app = new ApplicationInstance() {
+                public Window init() {
+                    return new Window();
+                }
+            };
+            ApplicationInstance.setActive(app);
+            app.doInit();
+            Column root = new Column();
+            app.getDefaultWindow().getContent().add(root);
+            for (int i = 0; i < columns.length; ++i) {
+                columns[i] = new Column();
+                root.add(columns[i]);
+            }
+            for (int i = 0; i < labels.length; ++i) {
+                labels[i] = new Label("label" + i);
+            }
+            columns[0].add(labels[0]);
+            columns[0].add(labels[1]);
+            columns[1].add(labels[2]);
+            getUpdateManager().setJournalCapacity(journalCapacity);
+            getUpdateManager().purge();
+        }
+        
+        UpdateManager getUpdateManager() {
+            return app.getUpdateManager();
+        }
+    }
+    
+    /**
+     * A set of changes made to the hierarchy within a single update cycle.
+     */
+    private interface Cycle {
+        
+        /**
+         * Applies the changes.
+         * 
+         * @param f the fixture to change
+         */
+        void apply(Fixture f);
+    }
+    
+    /**
+     * Adds the render ids of a component and its descendants to a set.
+     * 
+     * @param component the component
+     * @param renderIds the set
+     */
+    private static void collectRenderIds(Component component, Set<String> renderIds) {
+        renderIds.add(component.getRenderId());
+        for (int i = 0; i < component.getComponentCount(); ++i) {
+            collectRenderIds(component.getComponent(i), renderIds);
+        }
+    }
+    
+    /**
+     * Returns a description of the pending component updates of an 
+     * <code>UpdateManager</code>, mapping render ids of updated parents to
+     * the sorted render ids of their added, removed and 
+     * <code>LayoutData</code>-updated children, and their sorted updated
+     * property names.  Updates without content are omitted.  Removals of
+     * children which the client never rendered have no effect on the client,
+     * and are omitted.
+     * 
+     * @param updateManager the <code>UpdateManager</code>
+     * @param clientRenderIds the render ids of the components rendered by 
+     *        the client
+     * @return the description
+     */
+    private static Map<String, String> describe(UpdateManager updateManager, Set<String> clientRenderIds) {
+        Map<String, String> description = new TreeMap<>();
+        ServerComponentUpdate[] updates = updateManager.getServerUpdateManager().getComponentUpdates();
+        for (int i = 0; i < updates.length; ++i) {
+            ServerComponentUpdate update = updates[i];
+            String[] propertyNames = update.getUpdatedPropertyNames();
+            Arrays.sort(propertyNames);
+            String content = "added=" + renderIds(update.getAddedChildren(), null) 
+                    + " removed=" + renderIds(update.getRemovedChildren(), clientRenderIds)
+                    + " layoutData=" + renderIds(update.getUpdatedLayoutDataChildren(), null)
+                    + " properties=" + Arrays.toString(propertyNames);
+            if (!content.equals("added=[] removed=[] layoutData=[] properties=[]")) {
+                description.put(update.getParent().getRenderId(), content);
+            }
+        }
+        return description;
+    }
+    
+    /**
+     * Returns the sorted render ids (or last render ids, for unregistered
+     * components) of the specified components.
+     * 
+     * @param components the components
+     * @param filter the render ids to include, or null to include all
+     * @return the render ids
+     */
+    private static String renderIds(Component[] components, Set<String> filter) {
+        Set<String> renderIds = new TreeSet<>();
+        for (int i = 0; i < components.length; ++i) {
+            String renderId = components[i].isRegistered() ? components[i].getRenderId() : components[i].getLastRenderId();
+            if (filter == null || filter.contains(renderId)) {
+                renderIds.add(renderId);
+            }
+        }
+        return renderIds.toString();
+    }
+    
+    /**
+     * Runs the specified cycles, the client having applied only the first
+     * <code>appliedCount</code>, and asserts that recovery yields the 
+     * updates accumulated over the remaining cycles.
+     * 
+     * @param appliedCount the number of cycles applied by the client
+     * @param cycles the cycles
+     * @return the description of the recovered updates
+     */
+    private static Map<String, String> assertRecovered(int appliedCount, Cycle[] cycles) {
+        Fixture expected = new Fixture(0);
+        long lastAppliedSequence = expected.getUpdateManager().getSequence() - 1;
+        Set<String> clientRenderIds = new HashSet<>();
+        for (int i = 0; i < cycles.length; ++i) {
+            if (i == appliedCount) {
+                collectRenderIds(expected.app.getDefaultWindow(), clientRenderIds);
+            }
+            cycles[i].apply(expected);
+            if (i < appliedCount) {
+                lastAppliedSequence = expected.getUpdateManager().getSequence();
+                expected.getUpdateManager().purge();
+            }
+        }
+        
+        Fixture recovered = new Fixture(cycles.length);
+        for (int i = 0; i < cycles.length; ++i) {
+            cycles[i].apply(recovered);
+            recovered.getUpdateManager().purge();
+        }
+        assertTrue(recovered.getUpdateManager().recover(lastAppliedSequence));
+        assertFalse(recovered.getUpdateManager().getServerUpdateManager().isFullRefreshRequired());
+        
+        Map<String, String> description = describe(recovered.getUpdateManager(), clientRenderIds);
+        assertEquals(description, describe(expected.getUpdateManager(), clientRenderIds));
+        return description;
+    }
+    
+    @AfterMethod
+    public void tearDown() {
+        ApplicationInstance.setActive(null);
+    }
+    
+    @Test
+    public void testPropertyAndChildUpdates() {
+        Map<String, String> description = assertRecovered(1, new Cycle[] {
+            f -> f.labels[0].setText("a"),
+            f -> f.labels[1].setForeground(Color.RED),
+            f -> f.columns[1].add(f.labels[3]),
+            f -> f.columns[0].remove(f.labels[0])
+        });
+        assertEquals(description.size(), 3);
+    }
+    
+    @Test
+    public void testAddedThenRemovedIsSuppressed() {
+        Map<String, String> description = assertRecovered(0, new Cycle[] {
+            f -> f.columns[0].add(f.labels[3]),
+            f -> f.labels[3].setText("a"),
+            f -> f.columns[0].remove(f.labels[3])
+        });
+        assertTrue(description.isEmpty());
+    }
+    
+    @Test
+    public void testRemovedThenAddedIsReplaced() {
+        assertRecovered(0, new Cycle[] {
+            f -> f.columns[0].remove(f.labels[1]),
+            f -> f.columns[0].add(f.labels[1], 0)
+        });
+    }
+    
+    @Test
+    public void testMovedChildIsSkipped() {
+        Map<String, String> description = assertRecovered(1, new Cycle[] {
+            f -> f.labels[0].setText("a"),
+            f -> f.columns[0].add(f.labels[3]),
+            f -> f.columns[1].add(f.labels[3]),
+            f -> f.columns[1].add(f.labels[0])
+        });
+        // The label added to the first column is rendered only in the second.
+        assertEquals(description.size(), 2);
+    }
+    
+    @Test
+    public void testRemovedParentIsSkipped() {
+        assertRecovered(0, new Cycle[] {
+            f -> f.labels[2].setText("a"),
+            f -> f.columns[1].add(f.labels[3]),
+            f -> f.columns[1].getParent().remove(f.columns[1])
+        });
+    }
+    
+    @Test
+    public void testEvictionRequiresFullRefresh() {
+        Fixture fixture = new Fixture(2);
+        UpdateManager updateManager = fixture.getUpdateManager();
+        long firstSequence = updateManager.getSequence();
+        for (int i = 0; i < 3; ++i) {
+            fixture.labels[0].setText("text" + i);
+            updateManager.purge();
+        }
+        
+        // The first cycle has been evicted.
+        assertFalse(updateManager.recover(firstSequence - 1));
+        assertTrue(updateManager.getServerUpdateManager().isFullRefreshRequired());
+        updateManager.purge();
+        
+        // Cycles preceding the full refresh performed for recovery are no longer recoverable.
+        fixture.labels[0].setText("text");
+        updateManager.purge();
+        assertFalse(updateManager.recover(firstSequence + 1));
+        updateManager.purge();
+        long sequence = updateManager.getSequence();
+        fixture.labels[0].setText("text0");
+        updateManager.purge();
+        assertTrue(updateManager.recover(sequence - 1));
+        assertEquals(updateManager.getServerUpdateManager().getComponentUpdates().length, 1);
+    }
+    
+    @Test
+    public void testFullRefreshClearsJournal() {
+        Fixture fixture = new Fixture(8);
+        UpdateManager updateManager = fixture.getUpdateManager();
+        long firstSequence = updateManager.getSequence();
+        fixture.labels[0].setText("a");
+        updateManager.purge();
+        updateManager.getServerUpdateManager().processFullRefresh();
+        long fullRefreshSequence = updateManager.getSequence();
+        updateManager.purge();
+        fixture.labels[1].setText("b");
+        updateManager.purge();
+        
+        // Cycles before and including the full refresh are not recoverable.
+        assertFalse(updateManager.recover(firstSequence));
+        updateManager.purge();
+        fixture.labels[1].setText("c");
+        updateManager.purge();
+        assertFalse(updateManager.recover(fullRefreshSequence - 1));
+        updateManager.purge();
+        
+        // Cycles after the full refresh are.
+        long sequence = updateManager.getSequence();
+        fixture.labels[1].setText("d");
+        updateManager.purge();
+        assertTrue(updateManager.recover(sequence - 1));
+        assertFalse(updateManager.getServerUpdateManager().isFullRefreshRequired());
+    }
+}